@@ -3,9 +3,13 @@ package com.orden_pago.demo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class DemoApplication {
 
 	public static void main(String[] args) {
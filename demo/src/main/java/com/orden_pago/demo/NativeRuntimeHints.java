@@ -0,0 +1,102 @@
+package com.orden_pago.demo;
+
+import com.orden_pago.demo.dto.AddItemRequest;
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.dto.CartEventDTO;
+import com.orden_pago.demo.dto.CartHistoryDTO;
+import com.orden_pago.demo.dto.CartItemResponse;
+import com.orden_pago.demo.dto.CartResponse;
+import com.orden_pago.demo.dto.CatalogEventDTO;
+import com.orden_pago.demo.dto.CatalogFacetsDTO;
+import com.orden_pago.demo.dto.PaymentEventDTO;
+import com.orden_pago.demo.dto.PaymentHistoryDTO;
+import com.orden_pago.demo.dto.PaymentRequest;
+import com.orden_pago.demo.dto.PaymentResponse;
+import com.orden_pago.demo.dto.PaymentResult;
+import com.orden_pago.demo.dto.PaymentStatusEventDTO;
+import com.orden_pago.demo.dto.PriceChangeDTO;
+import com.orden_pago.demo.dto.ServiceRequestDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.dto.UpdateQuantityRequest;
+import com.orden_pago.demo.model.ArchivedCart;
+import com.orden_pago.demo.model.ArchivedCartItem;
+import com.orden_pago.demo.model.ArchivedPayment;
+import com.orden_pago.demo.model.Cart;
+import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.model.Payment;
+import com.orden_pago.demo.model.UuidV7Generator;
+import com.orden_pago.demo.service.kafka.KafkaCacheInvalidationTransport;
+import com.orden_pago.demo.service.kafka.FailedEventRouter.RetryTier;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Metadatos de alcanzabilidad para la imagen nativa (perfil native)
+ *
+ * El procesamiento AOT de Spring ya cubre los beans y los tipos de
+ * @RequestBody/@ResponseBody de los controladores. Aquí se declara lo que se
+ * usa por reflexión fuera de ese alcance:
+ * - los DTO que Jackson serializa o deserializa a mano (eventos de Kafka
+ *   como ServiceResponseDTO, SSE, bytes precalculados del catálogo), con sus
+ *   constructores, getters y setters generados por Lombok;
+ * - las entidades de Hibernate y el generador de UUIDv7, que Hibernate
+ *   instancia por reflexión;
+ * - los métodos de los consumidores funcionales de Spring Cloud Stream, de
+ *   los que se obtiene el tipo genérico Consumer<Message<String>>.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] BINDING_TYPES = {
+            AddItemRequest.class, CacheInvalidationDTO.class, CartEventDTO.class, CartHistoryDTO.class,
+            CartItemResponse.class, CartResponse.class, CatalogEventDTO.class, CatalogFacetsDTO.class,
+            PaymentEventDTO.class, PaymentHistoryDTO.class, PaymentRequest.class, PaymentResponse.class,
+            PaymentResult.class, PaymentStatusEventDTO.class, PriceChangeDTO.class, ServiceRequestDTO.class,
+            ServiceResponseDTO.class, UpdateQuantityRequest.class
+    };
+
+    private static final Class<?>[] ENTITY_TYPES = {
+            Cart.class, CartItem.class, Payment.class,
+            ArchivedCart.class, ArchivedCartItem.class, ArchivedPayment.class
+    };
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Jackson: propiedades, constructores y tipos anidados (enums, listas de ítems)
+        bindingRegistrar.registerReflectionHints(hints.reflection(), BINDING_TYPES);
+
+        // Hibernate: acceso a campos y constructor sin argumentos de las entidades
+        for (Class<?> entity : ENTITY_TYPES) {
+            hints.reflection().registerType(entity,
+                    MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+        hints.reflection().registerType(UuidV7Generator.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        // Spring Cloud Stream: tipo genérico de cada función a partir de su método @Bean
+        registerFunction(hints, ServiceKafkaConsumer.class, "serviceResponse");
+        for (RetryTier tier : RetryTier.values()) {
+            registerFunction(hints, ServiceKafkaConsumer.class, tier.function());
+        }
+        registerFunction(hints, KafkaCacheInvalidationTransport.class, "cacheInvalidation");
+    }
+
+    private static void registerFunction(RuntimeHints hints, Class<?> type, String beanMethod) {
+        Method method = ReflectionUtils.findMethod(type, beanMethod);
+        if (method == null) {
+            throw new IllegalStateException("No existe el bean funcional " + type.getSimpleName() + "#" + beanMethod);
+        }
+        hints.reflection().registerMethod(method, ExecutableMode.INVOKE);
+    }
+}
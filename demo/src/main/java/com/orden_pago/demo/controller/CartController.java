@@ -1,22 +1,33 @@
 package com.orden_pago.demo.controller;
 
 import com.orden_pago.demo.dto.AddItemRequest;
+import com.orden_pago.demo.dto.CatalogEventDTO;
+import com.orden_pago.demo.dto.CatalogFacetsDTO;
 import com.orden_pago.demo.dto.CartHistoryDTO;
+import com.orden_pago.demo.dto.CartItemResponse;
+import com.orden_pago.demo.dto.CartResponse;
 import com.orden_pago.demo.dto.PaymentRequest;
 import com.orden_pago.demo.dto.PaymentResponse;
 import com.orden_pago.demo.dto.ServiceResponseDTO;
 import com.orden_pago.demo.dto.UpdateQuantityRequest;
-import com.orden_pago.demo.model.Cart;
-import com.orden_pago.demo.model.CartItem;
 import com.orden_pago.demo.service.CartService;
+import com.orden_pago.demo.service.CatalogEventPublisher;
+import com.orden_pago.demo.service.CatalogResponseCache;
+import com.orden_pago.demo.service.CatalogResponseCache.RenderedCatalog;
 import com.orden_pago.demo.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -30,16 +41,37 @@ public class CartController {
 
     private final CartService cartService;
     private final PaymentService paymentService;
+    private final CatalogEventPublisher catalogEventPublisher;
+    private final CatalogResponseCache catalogResponseCache;
+
+    private static final int MAX_CATALOG_PAGE_SIZE = 500;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    // Servicios desalojados del catálogo por memoria: no están en la lista, pero sí en búsqueda y facetas
+    static final String EVICTED_COUNT_HEADER = "X-Catalog-Evicted";
 
     /**
      * GET /api/cart - Obtener carrito actual
+     * Responde 304 si el If-None-Match coincide con el ETag conocido del carrito,
+     * validado con la versión del carrito (sin cargar sus items)
      */
     @GetMapping
-    public ResponseEntity<Cart> getCurrentCart(Authentication authentication) {
+    public ResponseEntity<CartResponse> getCurrentCart(Authentication authentication, WebRequest webRequest) {
         try {
+            String knownETag = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                    ? cartService.getKnownCartETag(authentication)
+                    : null;
+            if (knownETag != null && webRequest.checkNotModified(knownETag)) {
+                log.debug("Carrito sin cambios (304)");
+                return null;
+            }
+
             log.info("Solicitando carrito actual");
-            Cart cart = cartService.getCurrentCart(authentication);
-            return ResponseEntity.ok(cart);
+            CartResponse cart = cartService.getCurrentCartView(authentication);
+            return ResponseEntity.ok()
+                    .eTag(cart.getEtag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(cart);
         } catch (Exception e) {
             log.error("Error obteniendo carrito actual: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -50,14 +82,14 @@ public class CartController {
      * POST /api/cart/items - Agregar item al carrito
      */
     @PostMapping("/items")
-    public ResponseEntity<CartItem> addItem(
+    public ResponseEntity<CartItemResponse> addItem(
             @Valid @RequestBody AddItemRequest request,
             Authentication authentication) {
         try {
             log.info("Agregando item al carrito: servicio={}, cantidad={}",
                     request.getServiceId(), request.getQuantity());
 
-            CartItem cartItem = cartService.addItemToCart(
+            CartItemResponse cartItem = cartService.addItemToCart(
                     authentication,
                     request.getServiceId(),
                     request.getQuantity());
@@ -76,14 +108,14 @@ public class CartController {
      * PUT /api/cart/items/{itemId} - Actualizar cantidad
      */
     @PutMapping("/items/{itemId}")
-    public ResponseEntity<CartItem> updateQuantity(
+    public ResponseEntity<CartItemResponse> updateQuantity(
             @PathVariable UUID itemId,
             @Valid @RequestBody UpdateQuantityRequest request) {
         try {
             log.info("Actualizando cantidad del item: {}, nueva cantidad: {}",
                     itemId, request.getQuantity());
 
-            CartItem updatedItem = cartService.updateItemQuantity(itemId, request.getQuantity());
+            CartItemResponse updatedItem = cartService.updateItemQuantity(itemId, request.getQuantity());
             return ResponseEntity.ok(updatedItem);
         } catch (RuntimeException e) {
             log.error("Error actualizando cantidad del item: {}", e.getMessage());
@@ -154,7 +186,7 @@ public class CartController {
             log.info("🛒 Iniciando checkout del carrito actual");
 
             // 1. Obtener carrito actual
-            Cart currentCart = cartService.getCurrentCart(authentication);
+            CartResponse currentCart = cartService.getCurrentCartView(authentication);
 
             // 2. Validar que el carrito no esté vacío
             if (currentCart.getItems() == null || currentCart.getItems().isEmpty()) {
@@ -168,9 +200,7 @@ public class CartController {
             }
 
             // 3. Calcular total del carrito
-            BigDecimal total = currentCart.getItems().stream()
-                    .map(CartItem::getSubtotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal total = currentCart.getTotalAmount();
 
             log.info("💰 Total del carrito a pagar: ${}", total);
 
@@ -189,7 +219,15 @@ public class CartController {
                         response.getStatus(), response.getMessage());
             }
 
-            // 7. Retornar respuesta con status apropiado
+            // 7. Precios conciliados (modo lazy): el cliente debe revisarlos y confirmar
+            // (503 si algún precio no se pudo verificar contra el marketplace)
+            if (response.getPriceChanges() != null && !response.getPriceChanges().isEmpty()) {
+                return ResponseEntity.status(response.hasUnverifiedPrices()
+                        ? HttpStatus.SERVICE_UNAVAILABLE
+                        : HttpStatus.CONFLICT).body(response);
+            }
+
+            // 8. Retornar respuesta con status apropiado
             HttpStatus status = switch (response.getStatus()) {
                 case COMPLETED -> HttpStatus.OK;
                 case FAILED -> HttpStatus.BAD_REQUEST;
@@ -212,21 +250,54 @@ public class CartController {
     /**
      * GET /api/cart/items/available - Listar servicios disponibles desde el repositorio
      * Endpoint que muestra servicios que fueron previamente procesados desde Kafka
+     * Escribe la respuesta ya serializada de la versión actual del catálogo
+     * (gzip si el cliente lo acepta); con page/size devuelve solo esa página
+     * X-Catalog-Evicted informa cuántos servicios quedaron fuera de la lista
+     * por el presupuesto de memoria (se encuentran con la búsqueda)
      */
     @GetMapping("/items/available")
-    public ResponseEntity<List<ServiceResponseDTO>> getAvailableServices() {
+    public ResponseEntity<byte[]> getAvailableServices(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
         try {
+            if (page != null && (page < 0 || size < 1 || size > MAX_CATALOG_PAGE_SIZE)) {
+                log.warn("❌ Paginación inválida del catálogo: page={}, size={}", page, size);
+                return ResponseEntity.badRequest().build();
+            }
+
+            boolean gzip = CatalogResponseCache.acceptsGzip(acceptEncoding);
+
+            // La versión se lee antes que la lista: si cambia entre medio, el ETag queda viejo y el cliente vuelve a pedir
+            String catalogETag = cartService.getCatalogETag();
+            if (webRequest.checkNotModified(gzip ? CatalogResponseCache.gzipETag(catalogETag) : catalogETag)) {
+                log.debug("Catálogo sin cambios (304)");
+                return null;
+            }
+
             log.info("📋 Listando servicios disponibles desde el repositorio");
 
-            List<ServiceResponseDTO> availableServices = cartService.getAvailableServicesFromRepository();
-            
-            if (availableServices.isEmpty()) {
+            RenderedCatalog catalog = catalogResponseCache.getPage(page, size);
+
+            if (catalog.count() == 0) {
                 log.warn("⚠️ No se encontraron servicios disponibles en el repositorio");
-                return ResponseEntity.ok(availableServices); // Devolver lista vacía con 200 OK
+            } else {
+                log.info("✅ Encontrados {} servicios disponibles", catalog.count());
+            }
+
+            // Devolver la lista (vacía o no) con 200 OK y su ETag
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .header(EVICTED_COUNT_HEADER, String.valueOf(cartService.getEvictedServicesCount()));
+            if (gzip) {
+                return response.eTag(catalog.gzipEtag())
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(catalog.gzip());
             }
-            
-            log.info("✅ Encontrados {} servicios disponibles", availableServices.size());
-            return ResponseEntity.ok(availableServices);
+            return response.eTag(catalog.etag()).body(catalog.identity());
 
         } catch (Exception e) {
             log.error("❌ Error obteniendo servicios disponibles: {}", e.getMessage());
@@ -234,4 +305,59 @@ public class CartController {
         }
     }
 
+    /**
+     * GET /api/cart/items/search?q= - Buscar servicios disponibles por título,
+     * descripción o categoría (sin tildes y por prefijo)
+     */
+    @GetMapping("/items/search")
+    public ResponseEntity<List<ServiceResponseDTO>> searchServices(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (query == null || query.isBlank() || limit < 1 || limit > MAX_SEARCH_RESULTS) {
+                log.warn("❌ Búsqueda inválida: q='{}', limit={}", query, limit);
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<ServiceResponseDTO> results = cartService.searchAvailableServices(query, limit);
+            log.info("🔎 Búsqueda '{}': {} resultados", query, results.size());
+            return ResponseEntity.ok(results);
+
+        } catch (Exception e) {
+            log.error("❌ Error buscando servicios: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * GET /api/cart/items/facets - Conteos por categoría, país y rango de precio
+     * Acepta filtros opcionales (category, country, priceRange) para los
+     * conteos bajo la selección actual
+     */
+    @GetMapping("/items/facets")
+    public ResponseEntity<CatalogFacetsDTO> getServiceFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String priceRange) {
+        try {
+            CatalogFacetsDTO facets = cartService.getAvailableServiceFacets(category, country, priceRange);
+            log.debug("Facetas del catálogo: {} servicios con filtros category={}, country={}, priceRange={}",
+                    facets.getTotal(), category, country, priceRange);
+            return ResponseEntity.ok(facets);
+        } catch (Exception e) {
+            log.error("❌ Error obteniendo facetas del catálogo: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * GET /api/cart/items/available/stream - Stream SSE de cambios del catálogo
+     * Envía los eventos CREATED/UPDATED/DELETED a medida que llegan desde Kafka
+     */
+    @GetMapping(value = "/items/available/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CatalogEventDTO>> streamAvailableServices() {
+        log.info("📡 Cliente suscrito al stream de cambios del catálogo");
+        return catalogEventPublisher.stream();
+    }
+
 }
\ No newline at end of file
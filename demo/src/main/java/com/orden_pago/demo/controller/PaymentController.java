@@ -3,18 +3,22 @@ package com.orden_pago.demo.controller;
 import com.orden_pago.demo.dto.PaymentHistoryDTO;
 import com.orden_pago.demo.dto.PaymentRequest;
 import com.orden_pago.demo.dto.PaymentResponse;
-import com.orden_pago.demo.model.Payment;
+import com.orden_pago.demo.dto.PaymentStatusEventDTO;
 import com.orden_pago.demo.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/payment")
@@ -36,6 +40,14 @@ public class PaymentController {
 
             PaymentResponse response = paymentService.processPayment(request, authentication);
 
+            // Precios conciliados en el checkout: el cliente debe revisarlos y confirmar
+            // (503 si algún precio no se pudo verificar contra el marketplace)
+            if (response.getPriceChanges() != null && !response.getPriceChanges().isEmpty()) {
+                return ResponseEntity.status(response.hasUnverifiedPrices()
+                        ? HttpStatus.SERVICE_UNAVAILABLE
+                        : HttpStatus.CONFLICT).body(response);
+            }
+
             // Retornar status apropiado basado en el resultado
             HttpStatus status = switch (response.getStatus()) {
                 case COMPLETED -> HttpStatus.OK;
@@ -90,11 +102,11 @@ public class PaymentController {
      * transaction ID
      */
     @GetMapping("/transaction/{transactionId}")
-    public ResponseEntity<Payment> getPaymentByTransactionId(@PathVariable String transactionId) {
+    public ResponseEntity<PaymentHistoryDTO> getPaymentByTransactionId(@PathVariable String transactionId) {
         try {
             log.info("Obteniendo pago por transaction ID: {}", transactionId);
 
-            Optional<Payment> payment = paymentService.getPaymentByTransactionId(transactionId);
+            Optional<PaymentHistoryDTO> payment = paymentService.getPaymentByTransactionId(transactionId);
 
             return payment.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
@@ -105,4 +117,28 @@ public class PaymentController {
         }
     }
 
+    /**
+     * GET /api/payment/{id}/events - Stream SSE de cambios de estado del pago
+     * Emite el estado actual y luego cada transición hasta COMPLETED/FAILED
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<PaymentStatusEventDTO>>> streamPaymentEvents(
+            @PathVariable UUID id,
+            Authentication authentication) {
+        try {
+            log.info("Suscribiendo a eventos del pago: {}", id);
+
+            Flux<ServerSentEvent<PaymentStatusEventDTO>> events = paymentService.streamPaymentStatus(id, authentication)
+                    .map(event -> ServerSentEvent.<PaymentStatusEventDTO>builder(event)
+                            .event(event.getStatus().name())
+                            .build());
+
+            return ResponseEntity.ok(events);
+
+        } catch (RuntimeException e) {
+            log.error("Error suscribiendo a eventos del pago: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
 }
\ No newline at end of file
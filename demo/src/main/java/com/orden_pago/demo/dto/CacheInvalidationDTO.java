@@ -0,0 +1,30 @@
+package com.orden_pago.demo.dto;
+
+import com.orden_pago.demo.enums.CacheInvalidationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Invalidación de una caché local difundida entre instancias
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheInvalidationDTO {
+    private CacheInvalidationType type;
+    private String key; // userId o serviceId
+    private long version; // CART: instante del cambio; CATALOG: timestamp del evento aplicado (epoch ms)
+    private String originInstanceId; // instancia que publicó (no se aplica a sí misma)
+    private long publishedAt; // epoch ms, para medir el retraso de entrega
+
+    /**
+     * Clave del mensaje en el topic compactado: se conserva la última
+     * invalidación de cada carrito o servicio
+     */
+    public String topicKey() {
+        return type + ":" + key;
+    }
+}
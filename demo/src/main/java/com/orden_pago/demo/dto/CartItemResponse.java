@@ -0,0 +1,27 @@
+package com.orden_pago.demo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Vista de un item del carrito para la API
+ */
+@Data
+@Builder
+public class CartItemResponse {
+    private UUID id;
+    private UUID serviceId;
+    private String serviceName;
+    private String serviceDescription;
+    private BigDecimal servicePrice;
+    private String serviceCategory;
+    private String serviceImageUrl;
+    private Double averageRating;
+    private Integer quantity;
+    private LocalDateTime addedAt;
+    private BigDecimal subtotal;
+}
@@ -0,0 +1,31 @@
+package com.orden_pago.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.orden_pago.demo.enums.CartStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Vista del carrito actual para la API (construida dentro de la transacción)
+ */
+@Data
+@Builder
+public class CartResponse {
+    private UUID id;
+    private String userId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private CartStatus status;
+    private List<CartItemResponse> items;
+    private BigDecimal totalAmount;
+    private int totalItems;
+
+    // ETag fuerte de esta vista; viaja en la cabecera, no en el cuerpo
+    @JsonIgnore
+    private String etag;
+}
@@ -0,0 +1,19 @@
+package com.orden_pago.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Carrito activo de un usuario y versión de su contenido, con la que se
+ * valida el ETag guardado en CartETagCache
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartVersionDTO {
+    private UUID cartId;
+    private Long contentVersion;
+}
@@ -0,0 +1,28 @@
+package com.orden_pago.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO para cambios del catálogo enviados a los clientes (SSE)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogEventDTO {
+    private String eventType; // CREATED, UPDATED, DELETED
+    private UUID serviceId;
+    private ServiceResponseDTO service; // null en eventos DELETED (eliminados o desactivados)
+    private LocalDateTime timestamp;
+
+    public static CatalogEventDTO fromServiceResponse(ServiceResponseDTO serviceResponse) {
+        String eventType = serviceResponse.isRemovalEvent() ? "DELETED"
+                : serviceResponse.isCreatedEvent() ? "CREATED" : "UPDATED";
+        return new CatalogEventDTO(eventType, serviceResponse.getServiceId(),
+                serviceResponse.isRemovalEvent() ? null : serviceResponse, LocalDateTime.now());
+    }
+}
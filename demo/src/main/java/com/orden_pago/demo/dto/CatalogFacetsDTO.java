@@ -0,0 +1,18 @@
+package com.orden_pago.demo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * DTO con los conteos por faceta del catálogo (para los filtros de la UI)
+ */
+@Data
+@Builder
+public class CatalogFacetsDTO {
+    private int total; // servicios que cumplen todos los filtros activos
+    private Map<String, Integer> categories;
+    private Map<String, Integer> countries;
+    private Map<String, Integer> priceRanges;
+}
@@ -7,15 +7,24 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class PaymentResponse {
+    private UUID paymentId; // Permite suscribirse a /api/payment/{id}/events
     private String transactionId;
     private PaymentStatus status;
     private BigDecimal amount;
     private String message;
     private LocalDateTime processedAt;
+    private List<PriceChangeDTO> priceChanges; // Precios conciliados en el checkout (modo lazy)
+
+    // Algún item no se pudo verificar contra el marketplace (el checkout se reintenta)
+    public boolean hasUnverifiedPrices() {
+        return priceChanges != null && priceChanges.stream().anyMatch(change -> !change.isVerified());
+    }
 }
\ No newline at end of file
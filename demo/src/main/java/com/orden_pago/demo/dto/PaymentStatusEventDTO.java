@@ -0,0 +1,34 @@
+package com.orden_pago.demo.dto;
+
+import com.orden_pago.demo.enums.PaymentStatus;
+import com.orden_pago.demo.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO para transiciones de estado de un pago enviadas por SSE
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatusEventDTO {
+    private UUID paymentId;
+    private PaymentStatus status; // PENDING, COMPLETED, FAILED
+    private String transactionId;
+    private BigDecimal amount;
+    private LocalDateTime timestamp;
+
+    public static PaymentStatusEventDTO fromPayment(Payment payment) {
+        return new PaymentStatusEventDTO(payment.getId(), payment.getStatus(), payment.getTransactionId(),
+                payment.getAmount(), LocalDateTime.now());
+    }
+
+    public boolean isTerminal() {
+        return status == PaymentStatus.COMPLETED || status == PaymentStatus.FAILED;
+    }
+}
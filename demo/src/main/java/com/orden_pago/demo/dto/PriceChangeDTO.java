@@ -0,0 +1,32 @@
+package com.orden_pago.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Diferencia entre el precio de un item del carrito y el catálogo actual,
+ * detectada al conciliar precios en el checkout, o item cuyo precio no se
+ * pudo verificar (verified = false)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceChangeDTO {
+    private UUID itemId;
+    private UUID serviceId;
+    private String serviceName;
+    private Integer quantity;
+    private BigDecimal previousPrice;
+    private BigDecimal currentPrice; // null si el servicio ya no está disponible o no se verificó
+    private boolean available;
+    private boolean verified; // false si el marketplace no respondió a tiempo
+    private Instant previousPriceEventAt; // evento del marketplace del que salió el precio anterior
+    private Instant currentPriceEventAt; // evento del marketplace del precio actual
+}
@@ -218,4 +218,11 @@ public class ServiceResponseDTO {
     public boolean isDeletedEvent() {
         return "DELETED".equalsIgnoreCase(eventType);
     }
+
+    /**
+     * Verifica si el evento saca al servicio del catálogo (eliminado o desactivado)
+     */
+    public boolean isRemovalEvent() {
+        return isDeletedEvent() || Boolean.FALSE.equals(isActive);
+    }
 }
\ No newline at end of file
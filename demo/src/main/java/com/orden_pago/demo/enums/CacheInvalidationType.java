@@ -0,0 +1,9 @@
+package com.orden_pago.demo.enums;
+
+/**
+ * Qué caché local invalida un mensaje del bus de invalidaciones
+ */
+public enum CacheInvalidationType {
+    CART, // ETag del carrito activo de un usuario (key = userId, "*" = todos)
+    CATALOG // entrada del catálogo en memoria (key = serviceId)
+}
@@ -0,0 +1,9 @@
+package com.orden_pago.demo.enums;
+
+/**
+ * Cómo llegan los cambios de precio del marketplace a los items del carrito
+ */
+public enum CartPricingMode {
+    EAGER, // la ingesta actualiza los items de todos los carritos activos
+    LAZY // los items conservan su precio y se concilian al pagar
+}
@@ -3,5 +3,6 @@ package com.orden_pago.demo.enums;
 public enum CartStatus {
     ACTIVE,
     COMPLETED,
-    ABANDONED
+    ABANDONED,
+    EXPIRED // Carrito activo sin actividad, expirado por CartReaperService
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.orden_pago.demo.model;
+
+import com.orden_pago.demo.enums.CartStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Carrito completado movido al histórico (tabla fría)
+ * Conserva el mismo ID que tenía en la tabla carts
+ */
+@Entity
+@Table(name = "carts_archive")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCart {
+    @Id
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId; // Del JWT token
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CartStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount; // Total calculado al archivar
+
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems; // Cantidad total de items al archivar
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    // Crea la copia histórica de un carrito
+    public static ArchivedCart fromCart(Cart cart, LocalDateTime archivedAt) {
+        return new ArchivedCart(cart.getId(), cart.getUserId(), cart.getStatus(), cart.getCreatedAt(),
+                cart.getUpdatedAt(), cart.getTotalAmount(), cart.getTotalItems(), archivedAt);
+    }
+}
@@ -0,0 +1,55 @@
+package com.orden_pago.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Item de un carrito archivado
+ * Versión compacta de CartItem: sin descripción, imagen ni rating
+ */
+@Entity
+@Table(name = "cart_items_archive")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCartItem {
+    @Id
+    private UUID id;
+
+    @Column(name = "cart_id", nullable = false)
+    private UUID cartId; // Carrito archivado al que pertenece
+
+    @Column(name = "service_id", nullable = false)
+    private UUID serviceId; // Servicio del microservicio de marketplace
+
+    @Column(name = "service_name", nullable = false)
+    private String serviceName; // Título del servicio
+
+    @Column(name = "service_category")
+    private String serviceCategory; // Nombre de la categoría
+
+    @Column(name = "service_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal servicePrice; // Precio pagado
+
+    @Column(nullable = false)
+    private Integer quantity; // Cantidad del servicio
+
+    // Crea la copia histórica de un item
+    public static ArchivedCartItem fromCartItem(CartItem item, UUID cartId) {
+        return new ArchivedCartItem(item.getId(), cartId, item.getServiceId(), item.getServiceName(),
+                item.getServiceCategory(), item.getServicePrice(), item.getQuantity());
+    }
+
+    // Calcula el subtotal
+    public BigDecimal getSubtotal() {
+        if (servicePrice == null || quantity == null) {
+            return BigDecimal.ZERO;
+        }
+        return servicePrice.multiply(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,68 @@
+package com.orden_pago.demo.model;
+
+import com.orden_pago.demo.enums.PaymentMethod;
+import com.orden_pago.demo.enums.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Pago de un carrito archivado (tabla fría)
+ * Guarda los datos del carrito que necesita el historial de pagos
+ */
+@Entity
+@Table(name = "payments_archive")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedPayment {
+    @Id
+    private UUID id;
+
+    @Column(name = "cart_id", nullable = false)
+    private UUID cartId; // Carrito archivado asociado
+
+    @Column(name = "user_id")
+    private String userId; // user id del JWT token
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount; // Monto del pago
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentMethod method; // Método de pago
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(name = "transaction_id")
+    private String transactionId; // ID de la transacción del proveedor de pago
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt; // Fecha y hora del procesamiento
+
+    @Column(name = "card_number")
+    private String cardNumber; // Número enmascarado
+
+    @Column(name = "card_holder_name")
+    private String cardHolderName; // nombre del titular de la tarjeta
+
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount; // Cantidad de items del carrito al archivar
+
+    @Column(name = "cart_created_at")
+    private LocalDateTime cartCreatedAt; // Fecha de creación del carrito
+
+    // Crea la copia histórica de un pago
+    public static ArchivedPayment fromPayment(Payment payment, Cart cart) {
+        return new ArchivedPayment(payment.getId(), cart.getId(), payment.getUserId(), payment.getAmount(),
+                payment.getMethod(), payment.getStatus(), payment.getTransactionId(), payment.getProcessedAt(),
+                payment.getCardNumber(), payment.getCardHolderName(), cart.getItems().size(), cart.getCreatedAt());
+    }
+}
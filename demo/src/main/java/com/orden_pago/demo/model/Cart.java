@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -21,7 +22,7 @@ import java.util.UUID;
 @AllArgsConstructor
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     private UUID id;
 
     @Column(name = "user_id", nullable = false)
@@ -39,6 +40,10 @@ public class Cart {
     @Column(nullable = false)
     private CartStatus status = CartStatus.ACTIVE;
 
+    // Versión del contenido (carrito e items); solo la incrementa CartRepository.incrementContentVersion
+    @Column(name = "content_version", insertable = false, updatable = false)
+    private Long contentVersion;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CartItem> items = new ArrayList<>();
 
@@ -5,10 +5,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -19,7 +21,7 @@ import java.util.UUID;
 @AllArgsConstructor
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(algorithm = UuidV7Generator.class)
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -51,6 +53,9 @@ public class CartItem {
     @Column(nullable = false)
     private Integer quantity; // Cantidad del servicio
 
+    @Column(name = "price_event_at")
+    private Instant priceEventAt; // Timestamp del evento del marketplace del que salió el precio
+
     @CreationTimestamp
     @Column(name = "added_at", nullable = false)
     private LocalDateTime addedAt;
@@ -0,0 +1,54 @@
+package com.orden_pago.demo.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de UUID versión 7 (RFC 9562) para las entidades
+ *
+ * Los 48 bits altos son el timestamp Unix en milisegundos, así que los IDs
+ * nuevos se insertan al final del índice B-tree en lugar de dispersarse.
+ * Los 12 bits de rand_a se usan como contador dentro del mismo milisegundo
+ * (método 1 de la RFC), de modo que los IDs de un mismo nodo son
+ * estrictamente crecientes. El estado es un único AtomicLong (sin locks).
+ */
+public class UuidV7Generator implements UuidValueGenerator {
+
+    private static final AtomicLong LAST_STATE = new AtomicLong();
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+
+    /**
+     * Genera un nuevo UUIDv7
+     */
+    public static UUID next() {
+        long state = nextState(System.currentTimeMillis());
+        long timestamp = state >>> 12;
+        long counter = state & 0xFFFL;
+
+        long mostSigBits = (timestamp << 16) | 0x7000L | counter;
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Avanza el estado (timestamp << 12 | contador). Si el contador se agota
+     * dentro del milisegundo, el timestamp avanza uno para seguir siendo monótono.
+     */
+    private static long nextState(long nowMillis) {
+        while (true) {
+            long previous = LAST_STATE.get();
+            long candidate = (nowMillis << 12) > previous ? nowMillis << 12 : previous + 1;
+            if (LAST_STATE.compareAndSet(previous, candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
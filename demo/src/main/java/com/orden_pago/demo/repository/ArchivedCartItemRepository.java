@@ -0,0 +1,16 @@
+package com.orden_pago.demo.repository;
+
+import com.orden_pago.demo.model.ArchivedCartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ArchivedCartItemRepository extends JpaRepository<ArchivedCartItem, UUID> {
+
+    List<ArchivedCartItem> findByCartIdIn(Collection<UUID> cartIds);
+
+}
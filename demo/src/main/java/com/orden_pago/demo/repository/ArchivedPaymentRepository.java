@@ -0,0 +1,15 @@
+package com.orden_pago.demo.repository;
+
+import com.orden_pago.demo.model.ArchivedPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ArchivedPaymentRepository extends JpaRepository<ArchivedPayment, UUID> {
+
+    List<ArchivedPayment> findByUserIdOrderByProcessedAtDesc(String userId);
+
+}
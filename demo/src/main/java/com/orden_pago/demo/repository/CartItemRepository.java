@@ -1,8 +1,12 @@
 package com.orden_pago.demo.repository;
 
+import com.orden_pago.demo.enums.CartStatus;
 import com.orden_pago.demo.model.Cart;
 import com.orden_pago.demo.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,8 +17,14 @@ import java.util.UUID;
 public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
 
     List<CartItem> findByCartOrderByAddedAtAsc(Cart cart);
+    List<CartItem> findByCartId(UUID cartId);
     Optional<CartItem> findByCartAndServiceId(Cart cart, UUID serviceId);
     boolean existsByCartAndServiceId(Cart cart, UUID serviceId);
     List<CartItem> findByServiceId(UUID serviceId);
     void deleteByCart(Cart cart);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from CartItem i where i.cart.id in "
+            + "(select c.id from Cart c where c.id in :cartIds and c.status = :status)")
+    int deleteByCartIdsAndCartStatus(@Param("cartIds") List<UUID> cartIds, @Param("status") CartStatus status);
 }
\ No newline at end of file
@@ -1,10 +1,17 @@
 package com.orden_pago.demo.repository;
 
+import com.orden_pago.demo.dto.CartVersionDTO;
 import com.orden_pago.demo.enums.CartStatus;
 import com.orden_pago.demo.model.Cart;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,4 +24,33 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
     List<Cart> findByStatus(CartStatus status);
     boolean existsByUserIdAndStatus(String userId, CartStatus status);
 
+    @Query("select c.id from Cart c where c.status = :status and c.updatedAt < :cutoff order by c.updatedAt")
+    List<UUID> findIdsByStatusAndUpdatedAtBefore(@Param("status") CartStatus status,
+            @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Query("select c from Cart c left join fetch c.items where c.userId = :userId and c.status = :status")
+    Optional<Cart> findWithItemsByUserIdAndStatus(@Param("userId") String userId, @Param("status") CartStatus status);
+
+    @Query("select distinct c from Cart c left join fetch c.items where c.userId = :userId order by c.createdAt desc")
+    List<Cart> findWithItemsByUserIdOrderByCreatedAtDesc(@Param("userId") String userId);
+
+    @Query("select distinct c from Cart c left join fetch c.items where c.id in :ids")
+    List<Cart> findWithItemsByIdIn(@Param("ids") List<UUID> ids);
+
+    @Query("select new com.orden_pago.demo.dto.CartVersionDTO(c.id, c.contentVersion) from Cart c "
+            + "where c.userId = :userId and c.status = :status")
+    Optional<CartVersionDTO> findVersionByUserIdAndStatus(@Param("userId") String userId,
+            @Param("status") CartStatus status);
+
+    @Modifying
+    @Query("update Cart c set c.contentVersion = c.contentVersion + 1 where c.id in :ids")
+    int incrementContentVersion(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Cart c set c.status = :newStatus, c.updatedAt = :now "
+            + "where c.id in :ids and c.status = :currentStatus and c.updatedAt < :cutoff")
+    int updateStatusIfIdle(@Param("ids") List<UUID> ids, @Param("currentStatus") CartStatus currentStatus,
+            @Param("newStatus") CartStatus newStatus, @Param("cutoff") LocalDateTime cutoff,
+            @Param("now") LocalDateTime now);
+
 }
\ No newline at end of file
@@ -18,5 +18,6 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Payment> findByStatus(PaymentStatus status);
     Optional<Payment> findByTransactionId(String transactionId);
     boolean existsByCart(Cart cart);
+    List<Payment> findByCartIn(List<Cart> carts);
 
 }
\ No newline at end of file
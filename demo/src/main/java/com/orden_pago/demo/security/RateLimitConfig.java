@@ -0,0 +1,63 @@
+package com.orden_pago.demo.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registra un interceptor de límite de tasa por cada grupo configurado en
+ * rate-limit.groups
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@Slf4j
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimitProperties properties;
+    private final List<RateLimitInterceptor> interceptors = new ArrayList<>();
+
+    public RateLimitConfig(RateLimitProperties properties) {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            for (Map.Entry<String, RateLimitProperties.Group> entry : properties.getGroups().entrySet()) {
+                RateLimitProperties.Group group = entry.getValue();
+                TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(
+                        group.getCapacity(), group.getRefillPerSecond(), properties.getStripes());
+                interceptors.add(new RateLimitInterceptor(entry.getKey(), group.getMethod(), limiter));
+                log.info("Límite de tasa configurado - grupo: {}, {} {}, capacidad: {}, recarga: {}/s",
+                        entry.getKey(), group.getMethod(), group.getPattern(),
+                        group.getCapacity(), group.getRefillPerSecond());
+            }
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        for (RateLimitInterceptor interceptor : interceptors) {
+            String pattern = properties.getGroups().get(interceptor.getGroupName()).getPattern();
+            registry.addInterceptor(interceptor).addPathPatterns(pattern);
+        }
+    }
+
+    /**
+     * Descarta periódicamente los buckets inactivos para acotar la memoria
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = properties.getIdleEviction().toNanos();
+        for (RateLimitInterceptor interceptor : interceptors) {
+            int removed = interceptor.getLimiter().evictIdle(now, idleNanos);
+            if (removed > 0) {
+                log.debug("🧹 {} buckets inactivos eliminados del grupo {}", removed, interceptor.getGroupName());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.orden_pago.demo.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica el límite de tasa de un grupo de endpoints usando el "sub" del JWT
+ * como clave del bucket
+ */
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final String groupName;
+    private final String method;
+    private final TokenBucketRateLimiter limiter;
+
+    public RateLimitInterceptor(String groupName, String method, TokenBucketRateLimiter limiter) {
+        this.groupName = groupName;
+        this.method = method;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (method != null && !method.equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return true;
+        }
+
+        String userId = jwt.getClaimAsString("sub");
+        if (userId == null) {
+            return true;
+        }
+
+        long waitNanos = limiter.tryAcquire(userId, System.nanoTime());
+        if (waitNanos == 0L) {
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        log.warn("⛔ Límite de tasa excedido - grupo: {}, usuario: {}", groupName, userId);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        return false;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public TokenBucketRateLimiter getLimiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,35 @@
+package com.orden_pago.demo.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuración de límites de tasa por usuario (rate-limit.* en application.yml)
+ */
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Número de particiones del mapa de buckets (potencia de 2)
+    private int stripes = 16;
+
+    // Tiempo sin actividad tras el cual un bucket lleno se descarta
+    private Duration idleEviction = Duration.ofMinutes(10);
+
+    // Grupos de endpoints con su propio bucket por usuario
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Data
+    public static class Group {
+        private String method;
+        private String pattern;
+        private int capacity = 20;
+        private double refillPerSecond = 5.0;
+    }
+}
@@ -2,6 +2,7 @@ package com.orden_pago.demo.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -34,7 +35,10 @@ public class SecurityConfig {
                                 .sessionManagement(session -> session
                                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                                 .authorizeHttpRequests(authz -> authz
-                                                // Endpoints públicos
+                                                // Endpoints públicos (las operaciones de escritura de actuator, como
+                                                // reinyectar el DLT o cambiar niveles de log, requieren rol ADMIN)
+                                                .requestMatchers(HttpMethod.POST, "/actuator/**").hasRole("ADMIN")
+                                                .requestMatchers(HttpMethod.DELETE, "/actuator/**").hasRole("ADMIN")
                                                 .requestMatchers("/actuator/**").permitAll()
                                                 .requestMatchers("/h2-console/**").permitAll()
 
@@ -0,0 +1,103 @@
+package com.orden_pago.demo.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket por clave (usuario) sin bloqueos.
+ *
+ * Cada bucket se representa con un único AtomicLong que guarda el "tiempo
+ * teórico de llegada" (GCRA): consumir un token es un CAS sobre ese valor, sin
+ * objetos intermedios ni locks. Los buckets viven en varios mapas
+ * (particiones) para que la limpieza de buckets inactivos recorra una
+ * partición a la vez.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final Map<String, AtomicLong>[] stripes;
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, int stripeCount) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity y refillPerSecond deben ser positivos");
+        }
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = emissionIntervalNanos * capacity;
+
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new Map[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    /**
+     * Intenta consumir un token para la clave
+     *
+     * @return 0 si se permitió la solicitud, o los nanosegundos a esperar
+     *         hasta que haya un token disponible
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = bucketFor(key, nowNanos);
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long excess = newTat - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Elimina los buckets que llevan más de idleNanos llenos (sin consumo).
+     * Un bucket lleno equivale a uno inexistente, así que descartarlo no
+     * cambia el comportamiento del límite.
+     *
+     * @return cantidad de buckets eliminados
+     */
+    public int evictIdle(long nowNanos, long idleNanos) {
+        int removed = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            for (Map.Entry<String, AtomicLong> entry : stripe.entrySet()) {
+                AtomicLong bucket = entry.getValue();
+                if (nowNanos - bucket.get() >= idleNanos && stripe.remove(entry.getKey(), bucket)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Cantidad de buckets en memoria
+     */
+    public int size() {
+        int total = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            total += stripe.size();
+        }
+        return total;
+    }
+
+    private AtomicLong bucketFor(String key, long nowNanos) {
+        Map<String, AtomicLong> stripe = stripes[spread(key.hashCode()) & stripeMask];
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            bucket = stripe.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        return bucket;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,152 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.enums.CacheInvalidationType;
+import com.orden_pago.demo.service.kafka.KafkaCacheInvalidationTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus de invalidaciones de cachés locales entre instancias
+ *
+ * El catálogo y los ETags de carritos viven en memoria de cada instancia.
+ * Cada cambio que invalida una de esas cachés se difunde a las demás
+ * instancias (por un topic compactado de Kafka o, en pruebas, dentro de la
+ * JVM), que descartan su copia local. Así cada instancia puede cachear sin
+ * que un usuario balanceado a otro nodo lea datos anteriores a su propio
+ * cambio. Dentro de una transacción la invalidación se publica después del
+ * commit, cuando los datos nuevos ya son visibles para las demás instancias.
+ */
+@Service
+@Slf4j
+public class CacheInvalidationBus {
+
+    /**
+     * Medio usado para difundir las invalidaciones
+     */
+    public enum Transport {
+        KAFKA, // topic compactado compartido por las instancias
+        MEMORY, // instancias dentro de la misma JVM
+        NONE // una sola instancia: no se difunde nada
+    }
+
+    private final CacheInvalidationTransport transport;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<CacheInvalidationType, List<Consumer<CacheInvalidationDTO>>> listeners =
+            new EnumMap<>(CacheInvalidationType.class);
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong maxDeliveryLagMillis = new AtomicLong();
+
+    @Autowired
+    public CacheInvalidationBus(KafkaCacheInvalidationTransport kafkaTransport,
+            @Value("${cache.invalidation.transport:KAFKA}") Transport transport) {
+        this(switch (transport) {
+            case KAFKA -> kafkaTransport;
+            case MEMORY -> new InMemoryCacheInvalidationTransport();
+            case NONE -> CacheInvalidationTransport.NONE;
+        });
+        log.info("📣 Bus de invalidaciones de caché por {} (instancia {})", transport, instanceId);
+    }
+
+    public CacheInvalidationBus(CacheInvalidationTransport transport) {
+        for (CacheInvalidationType type : CacheInvalidationType.values()) {
+            listeners.put(type, new CopyOnWriteArrayList<>());
+        }
+        this.transport = transport;
+        transport.connect(this::deliver);
+    }
+
+    /**
+     * Registra un receptor de las invalidaciones de otras instancias
+     */
+    public void subscribe(CacheInvalidationType type, Consumer<CacheInvalidationDTO> listener) {
+        listeners.get(type).add(listener);
+    }
+
+    /**
+     * Difunde una invalidación a las demás instancias (al confirmar la
+     * transacción actual, si hay una)
+     */
+    public void publish(CacheInvalidationType type, String key, long version) {
+        CacheInvalidationDTO invalidation = CacheInvalidationDTO.builder()
+                .type(type)
+                .key(key)
+                .version(version)
+                .originInstanceId(instanceId)
+                .build();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(invalidation);
+                }
+            });
+        } else {
+            send(invalidation);
+        }
+    }
+
+    /**
+     * Aplica una invalidación recibida; las publicadas por esta instancia se ignoran
+     */
+    void deliver(CacheInvalidationDTO invalidation) {
+        if (instanceId.equals(invalidation.getOriginInstanceId()) || invalidation.getType() == null) {
+            return;
+        }
+        received.incrementAndGet();
+        if (invalidation.getPublishedAt() > 0) {
+            maxDeliveryLagMillis.accumulateAndGet(System.currentTimeMillis() - invalidation.getPublishedAt(), Math::max);
+        }
+        for (Consumer<CacheInvalidationDTO> listener : listeners.get(invalidation.getType())) {
+            try {
+                listener.accept(invalidation);
+            } catch (Exception e) {
+                log.error("❌ Error aplicando invalidación {} de {}: {}",
+                        invalidation.getType(), invalidation.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getMaxDeliveryLagMillis() {
+        return maxDeliveryLagMillis.get();
+    }
+
+    private void send(CacheInvalidationDTO invalidation) {
+        invalidation.setPublishedAt(System.currentTimeMillis());
+        try {
+            transport.send(invalidation);
+            published.incrementAndGet();
+        } catch (Exception e) {
+            // El cambio ya está confirmado; las demás instancias conservan su copia hasta la próxima invalidación
+            log.error("❌ No se pudo difundir la invalidación {} de {}: {}",
+                    invalidation.getType(), invalidation.getKey(), e.getMessage());
+        }
+    }
+}
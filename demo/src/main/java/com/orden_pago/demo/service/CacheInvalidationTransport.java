@@ -0,0 +1,35 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+
+import java.util.function.Consumer;
+
+/**
+ * Medio por el que viajan las invalidaciones entre instancias
+ * (ver CacheInvalidationBus)
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Transporte que no difunde nada (una sola instancia)
+     */
+    CacheInvalidationTransport NONE = new CacheInvalidationTransport() {
+        @Override
+        public void send(CacheInvalidationDTO invalidation) {
+        }
+
+        @Override
+        public void connect(Consumer<CacheInvalidationDTO> receiver) {
+        }
+    };
+
+    /**
+     * Difunde una invalidación a todas las instancias (incluida la que publica)
+     */
+    void send(CacheInvalidationDTO invalidation);
+
+    /**
+     * Registra el receptor de las invalidaciones que llegan de las instancias
+     */
+    void connect(Consumer<CacheInvalidationDTO> receiver);
+}
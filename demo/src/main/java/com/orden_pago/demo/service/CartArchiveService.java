@@ -0,0 +1,123 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.enums.CartStatus;
+import com.orden_pago.demo.model.ArchivedCart;
+import com.orden_pago.demo.model.ArchivedCartItem;
+import com.orden_pago.demo.model.ArchivedPayment;
+import com.orden_pago.demo.model.Cart;
+import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.model.Payment;
+import com.orden_pago.demo.repository.CartItemRepository;
+import com.orden_pago.demo.repository.CartRepository;
+import com.orden_pago.demo.repository.PaymentRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mueve los carritos COMPLETED antiguos, con sus items y pagos, a las tablas
+ * históricas (carts_archive, cart_items_archive, payments_archive)
+ *
+ * Así las tablas calientes y sus índices solo crecen con los usuarios
+ * activos. Cada bloque se copia y se borra en una transacción corta.
+ */
+@Service
+@Slf4j
+public class CartArchiveService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final PaymentRepository paymentRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cart.archive.completed-retention:30d}")
+    private Duration completedRetention;
+
+    @Value("${cart.archive.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${cart.archive.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    public CartArchiveService(CartRepository cartRepository, CartItemRepository cartItemRepository,
+            PaymentRepository paymentRepository, EntityManager entityManager,
+            PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.paymentRepository = paymentRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(30);
+    }
+
+    /**
+     * Ejecución periódica del archivado
+     */
+    @Scheduled(fixedDelayString = "${cart.archive.interval:3600000}",
+            initialDelayString = "${cart.archive.initial-delay:120000}")
+    public void archiveCompletedCarts() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(completedRetention);
+        int totalArchived = 0;
+
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            List<UUID> cartIds = cartRepository.findIdsByStatusAndUpdatedAtBefore(
+                    CartStatus.COMPLETED, cutoff, PageRequest.of(0, chunkSize));
+            if (cartIds.isEmpty()) {
+                break;
+            }
+
+            Integer archived = transactionTemplate.execute(status -> archiveChunk(cartIds));
+            totalArchived += archived != null ? archived : 0;
+
+            if (cartIds.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (totalArchived > 0) {
+            log.info("📦 Archivado: {} carritos completados movidos al histórico (anteriores a {})",
+                    totalArchived, cutoff);
+        }
+    }
+
+    /**
+     * Copia un bloque de carritos al histórico y los borra de las tablas calientes
+     */
+    private int archiveChunk(List<UUID> cartIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Cart> carts = cartRepository.findWithItemsByIdIn(cartIds);
+        List<Payment> payments = paymentRepository.findByCartIn(carts);
+        List<CartItem> items = carts.stream().flatMap(cart -> cart.getItems().stream()).toList();
+
+        // persist directo: los IDs ya vienen asignados y save() haría un SELECT por fila
+        carts.forEach(cart -> entityManager.persist(ArchivedCart.fromCart(cart, now)));
+        items.forEach(item -> entityManager.persist(ArchivedCartItem.fromCartItem(item, item.getCart().getId())));
+        payments.forEach(payment -> entityManager.persist(ArchivedPayment.fromPayment(payment, payment.getCart())));
+
+        // Orden de borrado según las claves foráneas: pagos, items, carritos
+        paymentRepository.deleteAllInBatch(payments);
+        cartItemRepository.deleteAllInBatch(items);
+        cartRepository.deleteAllInBatch(carts);
+
+        log.debug("Bloque archivado: {} carritos, {} items, {} pagos", carts.size(), items.size(), payments.size());
+        return carts.size();
+    }
+}
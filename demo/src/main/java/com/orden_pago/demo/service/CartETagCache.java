@@ -0,0 +1,156 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.dto.CartVersionDTO;
+import com.orden_pago.demo.enums.CacheInvalidationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ETag del carrito activo de cada usuario, para responder If-None-Match sin
+ * cargar el carrito ni sus items
+ *
+ * Cada ETag se guarda junto con el carrito y la versión de contenido
+ * (content_version) de los que salió, y solo se usa si siguen siendo los del
+ * carrito activo en la base de datos (get). Así una lectura nunca es más
+ * vieja que la última escritura confirmada, aunque la invalidación de otra
+ * instancia llegue tarde, desordenada o no llegue.
+ *
+ * Las invalidaciones (locales, después del commit y por el bus) solo liberan
+ * antes las entradas viejas. Cada invalidación toma un número de generación:
+ * una lectura que empezó antes (readToken) no guarda su ETag.
+ */
+@Service
+@Slf4j
+public class CartETagCache {
+
+    static final String ALL_USERS = "*";
+
+    private final Map<String, CachedETag> etags = new ConcurrentHashMap<>();
+    // Generación de la última invalidación de cada usuario
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    // Generación del último vaciado completo: lecturas anteriores no se guardan
+    private volatile long clearedAt;
+
+    private final CacheInvalidationBus invalidationBus;
+    private final int maxEntries;
+
+    public CartETagCache(CacheInvalidationBus invalidationBus,
+            @Value("${cart.etag-cache.max-entries:100000}") int maxEntries) {
+        this.invalidationBus = invalidationBus;
+        this.maxEntries = maxEntries;
+        invalidationBus.subscribe(CacheInvalidationType.CART, this::onRemoteInvalidation);
+    }
+
+    /**
+     * Indica si hay un ETag guardado para el usuario (sin validarlo)
+     */
+    public boolean contains(String userId) {
+        return etags.containsKey(userId);
+    }
+
+    /**
+     * ETag guardado para el usuario si salió de la versión actual de su
+     * carrito activo (null si no tiene uno); si no, se descarta y devuelve null
+     */
+    public String get(String userId, CartVersionDTO current) {
+        CachedETag cached = etags.get(userId);
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.version().equals(current)) {
+            etags.remove(userId, cached);
+            return null;
+        }
+        return cached.etag();
+    }
+
+    /**
+     * Marca de inicio de una lectura del carrito (antes de consultar la base de datos)
+     */
+    public long readToken() {
+        return generation.get();
+    }
+
+    /**
+     * Guarda el ETag leído y la versión del carrito de la que salió, salvo que
+     * el carrito se haya invalidado después de empezar la lectura
+     */
+    public void put(String userId, String etag, CartVersionDTO version, long readToken) {
+        if (etags.size() >= maxEntries) {
+            log.debug("Caché de ETags de carritos llena ({}), se vacía", etags.size());
+            clearLocal();
+        }
+        CachedETag cached = new CachedETag(etag, version);
+        etags.put(userId, cached);
+        // Si hubo una invalidación mientras se leía, se descarta lo recién guardado
+        Long invalidation = invalidatedAt.get(userId);
+        if (readToken < clearedAt || (invalidation != null && invalidation > readToken)) {
+            etags.remove(userId, cached);
+        }
+    }
+
+    /**
+     * Invalida el ETag del usuario (ahora y al confirmar la transacción actual)
+     * en esta y en las demás instancias
+     */
+    public void invalidate(String userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+        invalidationBus.publish(CacheInvalidationType.CART, userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Invalida todos los ETags (cambios masivos como la expiración de carritos)
+     * en esta y en las demás instancias
+     */
+    public void invalidateAll() {
+        clearLocal();
+        invalidationBus.publish(CacheInvalidationType.CART, ALL_USERS, System.currentTimeMillis());
+    }
+
+    public int size() {
+        return etags.size();
+    }
+
+    private void onRemoteInvalidation(CacheInvalidationDTO invalidation) {
+        if (ALL_USERS.equals(invalidation.getKey())) {
+            clearLocal();
+        } else {
+            evict(invalidation.getKey());
+        }
+    }
+
+    private void evict(String userId) {
+        if (invalidatedAt.size() >= maxEntries) {
+            clearLocal();
+        }
+        invalidatedAt.put(userId, generation.incrementAndGet());
+        etags.remove(userId);
+    }
+
+    private void clearLocal() {
+        // Las invalidaciones que se borran aquí quedan cubiertas por clearedAt, que se fija después
+        invalidatedAt.clear();
+        clearedAt = generation.incrementAndGet();
+        etags.clear();
+    }
+
+    private record CachedETag(String etag, CartVersionDTO version) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.enums.CartStatus;
+import com.orden_pago.demo.repository.CartItemRepository;
+import com.orden_pago.demo.repository.CartRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Expira en segundo plano los carritos ACTIVE sin actividad
+ *
+ * Trabaja por bloques: cada bloque es una transacción corta que marca los
+ * carritos como EXPIRED (solo si siguen inactivos) y borra sus items. Entre
+ * bloques se espera lo necesario para no superar el tope de carritos por
+ * segundo y no competir con el tráfico normal.
+ */
+@Service
+@Slf4j
+public class CartReaperService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartETagCache cartETagCache;
+
+    @Value("${cart.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cart.reaper.idle-timeout:72h}")
+    private Duration idleTimeout;
+
+    @Value("${cart.reaper.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${cart.reaper.max-carts-per-second:200}")
+    private int maxCartsPerSecond;
+
+    @Value("${cart.reaper.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    public CartReaperService(CartRepository cartRepository, CartItemRepository cartItemRepository,
+            PlatformTransactionManager transactionManager, CartETagCache cartETagCache) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartETagCache = cartETagCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(10);
+    }
+
+    /**
+     * Ejecución periódica del reaper
+     */
+    @Scheduled(fixedDelayString = "${cart.reaper.interval:300000}",
+            initialDelayString = "${cart.reaper.initial-delay:60000}")
+    public void reapAbandonedCarts() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleTimeout);
+        long pauseMillis = Math.max(0L, 1000L * chunkSize / Math.max(1, maxCartsPerSecond));
+        int totalExpired = 0;
+        int totalItems = 0;
+
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            List<UUID> candidates = cartRepository.findIdsByStatusAndUpdatedAtBefore(
+                    CartStatus.ACTIVE, cutoff, PageRequest.of(0, chunkSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            int[] result = transactionTemplate.execute(status -> expireChunk(candidates, cutoff));
+            totalExpired += result[0];
+            totalItems += result[1];
+            if (result[0] > 0) {
+                // La actualización masiva no sabe de qué usuarios eran los carritos
+                cartETagCache.invalidateAll();
+            }
+
+            if (candidates.size() < chunkSize || !pause(pauseMillis)) {
+                break;
+            }
+        }
+
+        if (totalExpired > 0) {
+            log.info("🧹 Reaper de carritos: {} carritos expirados, {} items eliminados (inactivos desde antes de {})",
+                    totalExpired, totalItems, cutoff);
+        }
+    }
+
+    /**
+     * Expira un bloque de carritos y borra sus items en una sola transacción
+     *
+     * @return [carritos expirados, items eliminados]
+     */
+    private int[] expireChunk(List<UUID> cartIds, LocalDateTime cutoff) {
+        int expired = cartRepository.updateStatusIfIdle(
+                cartIds, CartStatus.ACTIVE, CartStatus.EXPIRED, cutoff, LocalDateTime.now());
+        int items = expired > 0
+                ? cartItemRepository.deleteByCartIdsAndCartStatus(cartIds, CartStatus.EXPIRED)
+                : 0;
+        log.debug("Bloque de reaper: {} carritos expirados, {} items eliminados", expired, items);
+        return new int[] { expired, items };
+    }
+
+    private boolean pause(long millis) {
+        if (millis == 0L) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Reaper de carritos interrumpido");
+            return false;
+        }
+    }
+}
@@ -1,24 +1,51 @@
 package com.orden_pago.demo.service;
 
 import com.orden_pago.demo.dto.CartHistoryDTO;
+import com.orden_pago.demo.dto.CartItemResponse;
+import com.orden_pago.demo.dto.CartResponse;
+import com.orden_pago.demo.dto.CartVersionDTO;
+import com.orden_pago.demo.dto.CatalogFacetsDTO;
+import com.orden_pago.demo.dto.PriceChangeDTO;
 import com.orden_pago.demo.dto.ServiceResponseDTO;
 import com.orden_pago.demo.enums.CartStatus;
+import com.orden_pago.demo.model.ArchivedCart;
+import com.orden_pago.demo.model.ArchivedCartItem;
 import com.orden_pago.demo.model.Cart;
 import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.repository.ArchivedCartItemRepository;
+import com.orden_pago.demo.repository.ArchivedCartRepository;
 import com.orden_pago.demo.repository.CartRepository;
+import com.orden_pago.demo.service.kafka.KafkaMessagingService;
+import com.orden_pago.demo.service.kafka.ServiceEventFilter;
 import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
 import com.orden_pago.demo.repository.CartItemRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +55,19 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final ArchivedCartRepository archivedCartRepository;
+    private final ArchivedCartItemRepository archivedCartItemRepository;
+    private final CartETagCache cartETagCache;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final KafkaMessagingService kafkaMessagingService;
+    private final ServiceEventFilter serviceEventFilter;
+
+    @Value("${catalog.memory.refetch-timeout:5s}")
+    private Duration refetchTimeout;
+
+    @Value("${catalog.memory.max-refetches-per-search:4}")
+    private int maxRefetchesPerSearch;
 
     /**
      * Obtiene el carrito actual del usuario
@@ -64,10 +104,63 @@ public class CartService {
         return savedCart;
     }
 
+    /**
+     * Obtiene la vista del carrito actual con sus items en una sola consulta
+     * Crea el carrito si el usuario no tiene uno activo
+     */
+    @Transactional
+    public CartResponse getCurrentCartView(Authentication authentication) {
+        String userId = getUserIdFromAuth(authentication);
+        long readToken = cartETagCache.readToken();
+
+        Optional<Cart> existingCart = cartRepository.findWithItemsByUserIdAndStatus(userId, CartStatus.ACTIVE);
+        Cart cart = existingCart.isPresent() ? existingCart.get() : getCurrentCart(authentication);
+
+        CartResponse view = convertToCartResponse(cart);
+        view.setEtag(computeCartETag(view));
+        CartVersionDTO version = new CartVersionDTO(cart.getId(),
+                cart.getContentVersion() != null ? cart.getContentVersion() : 0L);
+        cartETagCache.put(userId, view.getEtag(), version, readToken);
+        return view;
+    }
+
+    /**
+     * Obtiene el ETag conocido del carrito actual sin cargar el carrito ni sus
+     * items: solo se consulta la versión del carrito activo, y el ETag en caché
+     * vale si salió de esa versión (null si no hay uno vigente)
+     */
+    @Transactional(readOnly = true)
+    public String getKnownCartETag(Authentication authentication) {
+        String userId = getUserIdFromAuth(authentication);
+        if (!cartETagCache.contains(userId)) {
+            return null;
+        }
+        CartVersionDTO current = cartRepository.findVersionByUserIdAndStatus(userId, CartStatus.ACTIVE)
+                .orElse(null);
+        return cartETagCache.get(userId, current);
+    }
+
+    /**
+     * Obtiene el ETag del catálogo de servicios disponibles
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getCatalogETag() {
+        return ServiceKafkaConsumer.getCatalogETag();
+    }
+
+    /**
+     * Obtiene cuántos servicios del marketplace quedaron fuera de la lista del
+     * catálogo por el presupuesto de memoria
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int getEvictedServicesCount() {
+        return ServiceKafkaConsumer.getEvictedServicesCount();
+    }
+
     /**
      * Agrega un item al carrito buscando servicios disponibles en la lista estática
      */
-    public CartItem addItemToCart(Authentication authentication, UUID serviceId, Integer quantity) {
+    public CartItemResponse addItemToCart(Authentication authentication, UUID serviceId, Integer quantity) {
         String userId = getUserIdFromAuth(authentication);
         log.info("Agregando item al carrito para usuario: {}, servicio: {}, cantidad: {}",
                 userId, serviceId, quantity);
@@ -88,7 +181,7 @@ public class CartService {
             }
 
             // Agregar item al carrito usando la información del servicio encontrado
-            return addItemToCartInternalSync(cart, serviceInfo, quantity);
+            return convertToCartItemResponse(addItemToCartInternalSync(cart, serviceInfo, quantity));
             
         } catch (Exception e) {
             log.error("Error agregando item al carrito: {}", e.getMessage());
@@ -103,8 +196,19 @@ public class CartService {
     private ServiceResponseDTO findAvailableServiceInStaticList(UUID serviceId) {
         log.info("🔍 Buscando servicio disponible en lista estática de Kafka: {}", serviceId);
         
+        // Si otra instancia ya aplicó un evento más nuevo del servicio, esperar a recibirlo aquí
+        if (!ServiceKafkaConsumer.awaitCatchUp(serviceId, refetchTimeout)) {
+            log.warn("⚠️ El servicio {} sigue desactualizado respecto de otra instancia, se usa la copia local",
+                    serviceId);
+        }
+
         // Buscar en la lista estática de ServiceKafkaConsumer
         ServiceResponseDTO serviceInfo = ServiceKafkaConsumer.getServiceById(serviceId);
+
+        // Si fue desalojado por el presupuesto de memoria, pedirlo de nuevo al marketplace
+        if (serviceInfo == null && ServiceKafkaConsumer.wasEvicted(serviceId)) {
+            serviceInfo = refetchEvictedService(serviceId);
+        }
         
         if (serviceInfo == null) {
             log.warn("❌ No se encontró información del servicio {} en la lista estática", serviceId);
@@ -115,6 +219,30 @@ public class CartService {
         return serviceInfo;
     }
 
+    /**
+     * Vuelve a pedir al marketplace un servicio desalojado del catálogo
+     * La respuesta también pasa por el consumidor, que lo reinserta en el catálogo
+     */
+    private ServiceResponseDTO refetchEvictedService(UUID serviceId) {
+        log.info("🔄 Servicio {} desalojado del catálogo, solicitándolo al marketplace", serviceId);
+        try {
+            ServiceResponseDTO response = kafkaMessagingService.requestServiceInfo(serviceId)
+                    .get(refetchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (response.getErrorMessage() != null || response.isRemovalEvent()) {
+                log.warn("❌ El marketplace no devolvió el servicio {}: {}", serviceId,
+                        response.getErrorMessage() != null ? response.getErrorMessage() : "eliminado o inactivo");
+                return null;
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("❌ Sin respuesta del marketplace para el servicio {}: {}", serviceId, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Obtiene todos los servicios disponibles desde la lista estática de Kafka
      * Útil para mostrar un catálogo de servicios disponibles
@@ -130,6 +258,63 @@ public class CartService {
         return availableServices;
     }
 
+    /**
+     * Busca servicios del catálogo por texto usando el índice en memoria
+     * Solo se decodifican los servicios que se devuelven; los desalojados del
+     * catálogo se piden al marketplace en paralelo (hasta refetch-timeout) y
+     * se omiten si no llegan a tiempo. Por búsqueda se piden como mucho
+     * max-refetches-per-search; los demás desalojados se omiten, para que una
+     * búsqueda amplia no dispare decenas de pedidos ni reingrese al catálogo
+     * (desalojando otros servicios) todo lo que encontró
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ServiceResponseDTO> searchAvailableServices(String query, int limit) {
+        List<ServiceResponseDTO> results = new ArrayList<>();
+        Map<Integer, CompletableFuture<ServiceResponseDTO>> refetches = new HashMap<>();
+        for (UUID serviceId : catalogSearchIndex.search(query)) {
+            if (results.size() >= limit) {
+                break;
+            }
+            ServiceResponseDTO service = ServiceKafkaConsumer.getServiceById(serviceId);
+            if (service != null) {
+                results.add(service);
+            } else if (refetches.size() < maxRefetchesPerSearch && ServiceKafkaConsumer.wasEvicted(serviceId)) {
+                log.debug("🔄 Servicio {} desalojado del catálogo, solicitándolo al marketplace", serviceId);
+                refetches.put(results.size(), kafkaMessagingService.requestServiceInfo(serviceId));
+                results.add(null);
+            }
+        }
+
+        if (!refetches.isEmpty()) {
+            try {
+                CompletableFuture.allOf(refetches.values().toArray(CompletableFuture[]::new))
+                        .get(refetchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("⚠️ No llegaron todos los servicios desalojados pedidos al marketplace: {}", e.getMessage());
+            }
+            refetches.forEach((position, future) -> {
+                ServiceResponseDTO response = future.isDone() && !future.isCompletedExceptionally()
+                        ? future.join()
+                        : null;
+                if (response != null && response.getErrorMessage() == null && !response.isRemovalEvent()) {
+                    results.set(position, response);
+                }
+            });
+        }
+        return results.stream().filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Obtiene los conteos por categoría, país y rango de precio del catálogo
+     * bajo los filtros indicados (null = sin filtro)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CatalogFacetsDTO getAvailableServiceFacets(String category, String country, String priceRange) {
+        return catalogFacetIndex.getFacets(category, country, priceRange);
+    }
+
     /**
      * Agrega un item al carrito con información del servicio ya disponible (SIN
      * KAFKA)
@@ -209,6 +394,7 @@ public class CartService {
             newItem.setServiceImageUrl(serviceResponse.getSafePrimaryImageUrl());
             newItem.setAverageRating(serviceResponse.getSafeAverageRating());
             newItem.setQuantity(quantity);
+            newItem.setPriceEventAt(priceEventAtOf(serviceResponse));
             newItem.setAddedAt(LocalDateTime.now());
 
             // 💾 Guardar en base de datos
@@ -225,6 +411,7 @@ public class CartService {
         // Actualizar timestamp del carrito
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
+        markCartChanged(cart);
 
         return item;
     }
@@ -232,7 +419,7 @@ public class CartService {
     /**
      * Actualiza la cantidad de un item
      */
-    public CartItem updateItemQuantity(UUID itemId, Integer newQuantity) {
+    public CartItemResponse updateItemQuantity(UUID itemId, Integer newQuantity) {
         log.info("Actualizando cantidad del item: {} a: {}", itemId, newQuantity);
 
         CartItem item = cartItemRepository.findById(itemId)
@@ -245,9 +432,10 @@ public class CartService {
         Cart cart = item.getCart();
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
+        markCartChanged(cart);
 
         log.info("Cantidad del item actualizada exitosamente");
-        return updatedItem;
+        return convertToCartItemResponse(updatedItem);
     }
 
     /**
@@ -266,6 +454,7 @@ public class CartService {
         // Actualizar timestamp del carrito
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
+        markCartChanged(cart);
 
         log.info("Item removido del carrito exitosamente");
     }
@@ -284,6 +473,7 @@ public class CartService {
 
             cart.setUpdatedAt(LocalDateTime.now());
             cartRepository.save(cart);
+            markCartChanged(cart);
 
             log.info("Carrito vaciado exitosamente");
         }
@@ -298,22 +488,35 @@ public class CartService {
         cart.setStatus(CartStatus.COMPLETED);
         cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
+        markCartChanged(cart);
 
         log.info("Carrito marcado como completado");
     }
 
     /**
      * Obtiene el historial de carritos del usuario como DTOs
+     * Combina los carritos de la tabla activa con los del histórico archivado
      */
     @Transactional(readOnly = true)
     public List<CartHistoryDTO> getUserCartHistory(Authentication authentication) {
         String userId = getUserIdFromAuth(authentication);
         log.info("Obteniendo historial de carritos para usuario: {}", userId);
 
-        List<Cart> carts = cartRepository.findByUserIdOrderByCreatedAtDesc(userId);
-
-        return carts.stream()
-                .map(this::convertToCartHistoryDTO)
+        List<Cart> carts = cartRepository.findWithItemsByUserIdOrderByCreatedAtDesc(userId);
+        List<ArchivedCart> archivedCarts = archivedCartRepository.findByUserIdOrderByCreatedAtDesc(userId);
+
+        Map<UUID, List<ArchivedCartItem>> archivedItems = archivedCarts.isEmpty()
+                ? Map.of()
+                : archivedCartItemRepository.findByCartIdIn(archivedCarts.stream().map(ArchivedCart::getId).toList())
+                        .stream()
+                        .collect(Collectors.groupingBy(ArchivedCartItem::getCartId));
+
+        return Stream.concat(
+                carts.stream().map(this::convertToCartHistoryDTO),
+                archivedCarts.stream().map(cart -> convertToCartHistoryDTO(cart,
+                        archivedItems.getOrDefault(cart.getId(), List.of()))))
+                .sorted(Comparator.comparing(CartHistoryDTO::getCreatedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
                 .toList();
     }
 
@@ -378,12 +581,16 @@ public class CartService {
             }
 
             // Actualizar información en cada item
+            Map<UUID, String> changedCarts = new HashMap<>();
             for (CartItem item : itemsToUpdate) {
                 updateCartItemWithServiceInfo(item, serviceResponse);
+                changedCarts.put(item.getCart().getId(), item.getCart().getUserId());
             }
 
             // Guardar todos los cambios
             cartItemRepository.saveAll(itemsToUpdate);
+            cartRepository.incrementContentVersion(changedCarts.keySet());
+            changedCarts.values().forEach(cartETagCache::invalidate);
 
             log.info("Actualizada información del servicio {} en {} items del carrito",
                     serviceResponse.getServiceId(), itemsToUpdate.size());
@@ -395,6 +602,143 @@ public class CartService {
         }
     }
 
+    /**
+     * Resuelve la información actual de los servicios de un carrito para
+     * conciliar sus precios (modo lazy)
+     *
+     * Se llama antes de abrir la transacción del pago: la espera al
+     * marketplace no retiene una conexión ni los locks de la base de datos.
+     * Los servicios que no se pudieron verificar quedan fuera del mapa.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<UUID, ServiceResponseDTO> resolveCheckoutServices(UUID cartId) {
+        return resolveCurrentServices(cartItemRepository.findByCartId(cartId));
+    }
+
+    /**
+     * Concilia los precios de un carrito contra la información de sus
+     * servicios resuelta con resolveCheckoutServices (modo lazy, al pagar)
+     *
+     * Los items cuyo precio cambió se actualizan con la información actual del
+     * servicio. Devuelve las diferencias encontradas, incluidos los servicios
+     * que ya no están disponibles (esos items no se modifican) y los que no se
+     * pudieron verificar (verified = false): un precio sin verificar no se
+     * cobra, el checkout debe reintentarse.
+     */
+    public List<PriceChangeDTO> reconcileCartPrices(Cart cart, Map<UUID, ServiceResponseDTO> currentServices) {
+        List<PriceChangeDTO> changes = new ArrayList<>();
+        List<CartItem> repricedItems = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            ServiceResponseDTO service = currentServices.get(item.getServiceId());
+            if (service == null) {
+                changes.add(PriceChangeDTO.builder()
+                        .itemId(item.getId())
+                        .serviceId(item.getServiceId())
+                        .serviceName(item.getServiceName())
+                        .quantity(item.getQuantity())
+                        .previousPrice(item.getServicePrice())
+                        .verified(false)
+                        .previousPriceEventAt(item.getPriceEventAt())
+                        .build());
+                continue;
+            }
+            boolean available = !service.isRemovalEvent() && service.isValidForCart();
+            if (available && service.getPrice().compareTo(item.getServicePrice()) == 0) {
+                continue;
+            }
+
+            changes.add(PriceChangeDTO.builder()
+                    .itemId(item.getId())
+                    .serviceId(item.getServiceId())
+                    .serviceName(item.getServiceName())
+                    .quantity(item.getQuantity())
+                    .previousPrice(item.getServicePrice())
+                    .currentPrice(available ? service.getPrice() : null)
+                    .available(available)
+                    .verified(true)
+                    .previousPriceEventAt(item.getPriceEventAt())
+                    .currentPriceEventAt(priceEventAtOf(service))
+                    .build());
+            if (available) {
+                updateCartItemWithServiceInfo(item, service);
+                repricedItems.add(item);
+            }
+        }
+
+        if (!repricedItems.isEmpty()) {
+            cartItemRepository.saveAll(repricedItems);
+            markCartChanged(cart);
+        }
+        log.info("💲 Conciliación de precios del carrito {}: {} items, {} diferencias",
+                cart.getId(), cart.getItems().size(), changes.size());
+        return changes;
+    }
+
+    /**
+     * Información actual de los servicios de los items: del catálogo en memoria
+     * (una vez recibidos los eventos que otra instancia ya aplicó) o, si no
+     * está ahí (desalojado o aún no recibido) o es más vieja que el evento del
+     * que salió el precio del item (lo agregó otra instancia más adelantada),
+     * pidiéndola al marketplace en paralelo con un único plazo. Los servicios
+     * sin respuesta quedan fuera del mapa
+     */
+    private Map<UUID, ServiceResponseDTO> resolveCurrentServices(List<CartItem> items) {
+        Map<UUID, ServiceResponseDTO> services = new HashMap<>();
+        Map<UUID, CompletableFuture<ServiceResponseDTO>> pending = new HashMap<>();
+        long deadline = System.nanoTime() + refetchTimeout.toNanos();
+        for (CartItem item : items) {
+            UUID serviceId = item.getServiceId();
+            if (services.containsKey(serviceId) || pending.containsKey(serviceId)) {
+                continue;
+            }
+            ServiceKafkaConsumer.awaitCatchUp(serviceId, Duration.ofNanos(Math.max(0L, deadline - System.nanoTime())));
+            ServiceResponseDTO service = ServiceKafkaConsumer.getServiceById(serviceId);
+            Instant catalogEventAt = service != null ? priceEventAtOf(service) : null;
+            if (service != null && item.getPriceEventAt() != null && catalogEventAt != null
+                    && catalogEventAt.isBefore(item.getPriceEventAt())) {
+                log.debug("Catálogo local del servicio {} más viejo que el precio del item ({} < {})",
+                        serviceId, catalogEventAt, item.getPriceEventAt());
+                service = null;
+            }
+            if (service != null) {
+                services.put(serviceId, service);
+            } else {
+                pending.put(serviceId, kafkaMessagingService.requestServiceInfo(serviceId));
+            }
+        }
+
+        for (Map.Entry<UUID, CompletableFuture<ServiceResponseDTO>> request : pending.entrySet()) {
+            try {
+                ServiceResponseDTO response = request.getValue()
+                        .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (response.getErrorMessage() == null) {
+                    services.put(request.getKey(), response);
+                } else {
+                    log.warn("⚠️ No se pudo verificar el precio del servicio {}: {}",
+                            request.getKey(), response.getErrorMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("⚠️ Sin respuesta del marketplace para verificar el precio del servicio {}", request.getKey());
+            }
+        }
+        return services;
+    }
+
+    /**
+     * Timestamp del evento del marketplace del que sale la información del
+     * servicio: el que trae el propio DTO (el catálogo guarda el del último
+     * evento aplicado) o, si no lo trae, el último aplicado para ese servicio
+     * según ServiceEventFilter. Se persiste en el item, así que vale entre
+     * instancias y reinicios
+     */
+    private Instant priceEventAtOf(ServiceResponseDTO service) {
+        Instant timestamp = ServiceEventFilter.parseTimestamp(service.getTimestamp());
+        return timestamp != null ? timestamp : serviceEventFilter.getLastAppliedTimestamp(service.getServiceId());
+    }
+
     /**
      * Actualiza un item específico del carrito con la información del servicio
      */
@@ -406,11 +750,81 @@ public class CartService {
         item.setAverageRating(serviceResponse.getAverageRating());
         item.setServiceCategory(serviceResponse.getSafeCategoryName()); // Uso método seguro
         item.setServiceImageUrl(serviceResponse.getPrimaryImageUrl());
+        item.setPriceEventAt(priceEventAtOf(serviceResponse));
 
         log.debug("Actualizado item del carrito {} con información del servicio {}",
                 item.getId(), serviceResponse.getServiceId());
     }
 
+    /**
+     * Registra un cambio del carrito o de sus items: incrementa su versión de
+     * contenido (con la que se validan los ETags en caché) e invalida el ETag
+     */
+    private void markCartChanged(Cart cart) {
+        cartRepository.incrementContentVersion(List.of(cart.getId()));
+        cartETagCache.invalidate(cart.getUserId());
+    }
+
+    /**
+     * Calcula un ETag fuerte a partir del contenido de la vista del carrito
+     * Incluye los datos de los items porque los cambios de catálogo actualizan
+     * precios y nombres sin tocar el updatedAt del carrito
+     */
+    private String computeCartETag(CartResponse view) {
+        StringBuilder key = new StringBuilder()
+                .append(view.getId()).append('|')
+                .append(view.getUpdatedAt()).append('|')
+                .append(view.getStatus());
+        for (CartItemResponse item : view.getItems()) {
+            key.append('|').append(item.getId())
+                    .append(':').append(item.getQuantity())
+                    .append(':').append(item.getServicePrice() != null ? item.getServicePrice().toPlainString() : null)
+                    .append(':').append(item.getServiceName())
+                    .append(':').append(item.getServiceDescription())
+                    .append(':').append(item.getServiceCategory())
+                    .append(':').append(item.getServiceImageUrl())
+                    .append(':').append(item.getAverageRating());
+        }
+        return UUID.nameUUIDFromBytes(key.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Convierte una entidad Cart a CartResponse
+     */
+    private CartResponse convertToCartResponse(Cart cart) {
+        return CartResponse.builder()
+                .id(cart.getId())
+                .userId(cart.getUserId())
+                .createdAt(cart.getCreatedAt())
+                .updatedAt(cart.getUpdatedAt())
+                .status(cart.getStatus())
+                .items(cart.getItems().stream()
+                        .map(this::convertToCartItemResponse)
+                        .toList())
+                .totalAmount(cart.getTotalAmount())
+                .totalItems(cart.getTotalItems())
+                .build();
+    }
+
+    /**
+     * Convierte una entidad CartItem a CartItemResponse
+     */
+    private CartItemResponse convertToCartItemResponse(CartItem item) {
+        return CartItemResponse.builder()
+                .id(item.getId())
+                .serviceId(item.getServiceId())
+                .serviceName(item.getServiceName())
+                .serviceDescription(item.getServiceDescription())
+                .servicePrice(item.getServicePrice())
+                .serviceCategory(item.getServiceCategory())
+                .serviceImageUrl(item.getServiceImageUrl())
+                .averageRating(item.getAverageRating())
+                .quantity(item.getQuantity())
+                .addedAt(item.getAddedAt())
+                .subtotal(item.getSubtotal())
+                .build();
+    }
+
     /**
      * Convierte una entidad Cart a CartHistoryDTO
      */
@@ -430,6 +844,33 @@ public class CartService {
                 .build();
     }
 
+    /**
+     * Convierte un carrito archivado a CartHistoryDTO
+     */
+    private CartHistoryDTO convertToCartHistoryDTO(ArchivedCart cart, List<ArchivedCartItem> items) {
+        List<CartHistoryDTO.CartItemSummary> itemSummaries = items.stream()
+                .map(item -> CartHistoryDTO.CartItemSummary.builder()
+                        .id(item.getId())
+                        .serviceId(item.getServiceId())
+                        .serviceName(item.getServiceName())
+                        .serviceCategory(item.getServiceCategory())
+                        .servicePrice(item.getServicePrice())
+                        .quantity(item.getQuantity())
+                        .subtotal(item.getSubtotal())
+                        .build())
+                .toList();
+
+        return CartHistoryDTO.builder()
+                .id(cart.getId())
+                .status(cart.getStatus())
+                .createdAt(cart.getCreatedAt())
+                .updatedAt(cart.getUpdatedAt())
+                .totalAmount(cart.getTotalAmount())
+                .totalItems(cart.getTotalItems())
+                .items(itemSummaries)
+                .build();
+    }
+
     /**
      * Convierte un CartItem a CartItemSummary
      */
@@ -0,0 +1,82 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CatalogEventDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Difunde los cambios del catálogo a los clientes conectados por SSE
+ *
+ * Cada suscriptor tiene su propio buffer acotado: si un cliente lento lo
+ * llena, se descartan sus eventos más antiguos sin frenar la ingesta de Kafka
+ * ni a los demás suscriptores.
+ */
+@Service
+@Slf4j
+public class CatalogEventPublisher {
+
+    private static final Duration EMIT_RETRY = Duration.ofMillis(50);
+
+    private final Sinks.Many<CatalogEventDTO> sink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    @Value("${catalog.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${catalog.stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    /**
+     * Publica un cambio del catálogo (llamado desde la ingesta de Kafka)
+     */
+    public void publish(ServiceResponseDTO serviceResponse) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        CatalogEventDTO event = CatalogEventDTO.fromServiceResponse(serviceResponse);
+        // Reintenta brevemente si otro hilo de ingesta está emitiendo al mismo tiempo
+        sink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(EMIT_RETRY));
+    }
+
+    /**
+     * Stream de eventos SSE para un suscriptor, con heartbeat para mantener
+     * viva la conexión a través de proxies
+     */
+    public Flux<ServerSentEvent<CatalogEventDTO>> stream() {
+        Flux<ServerSentEvent<CatalogEventDTO>> events = sink.asFlux()
+                .onBackpressureBuffer(bufferSize, dropped -> droppedEvents.incrementAndGet(),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .map(event -> ServerSentEvent.<CatalogEventDTO>builder(event)
+                        .event(event.getEventType())
+                        .id(String.valueOf(event.getServiceId()))
+                        .build());
+
+        Flux<ServerSentEvent<CatalogEventDTO>> heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds))
+                .map(tick -> ServerSentEvent.<CatalogEventDTO>builder().comment("keep-alive").build());
+
+        return Flux.merge(events, heartbeats)
+                .doOnSubscribe(subscription -> log.info("📡 Nuevo suscriptor al catálogo. Total: {}",
+                        subscribers.incrementAndGet()))
+                .doFinally(signal -> log.info("📴 Suscriptor del catálogo desconectado ({}). Total: {}",
+                        signal, subscribers.decrementAndGet()));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+}
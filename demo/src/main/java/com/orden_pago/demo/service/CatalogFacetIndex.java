@@ -0,0 +1,250 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CatalogFacetsDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Conteos por faceta del catálogo (categoría, país y rango de precio)
+ * mantenidos de forma incremental
+ *
+ * Cada servicio ocupa una posición fija y cada valor de faceta guarda un
+ * BitSet con las posiciones de sus servicios. Un alta, cambio o baja solo
+ * mueve esa posición entre BitSets; una consulta es un AND de los filtros y
+ * un conteo de bits por valor, sin recorrer la lista de servicios.
+ *
+ * Los conteos de cada faceta se calculan con los filtros de las otras
+ * facetas (no con el propio), para que la UI siga mostrando las demás
+ * opciones de la faceta seleccionada.
+ */
+@Service
+public class CatalogFacetIndex {
+
+    static final String NO_COUNTRY = "Sin país";
+    static final String NO_PRICE = "Sin precio";
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, BitSet> categories = new HashMap<>();
+    private final Map<String, BitSet> countries = new HashMap<>();
+    private final Map<String, BitSet> priceRanges = new HashMap<>();
+    private final BitSet all = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nextSlot;
+
+    private final BigDecimal[] priceBounds;
+    private final List<String> priceLabels;
+
+    public CatalogFacetIndex(@Value("${catalog.facets.price-bounds:10000,50000,100000,500000}") BigDecimal[] priceBounds) {
+        this.priceBounds = priceBounds.clone();
+        this.priceLabels = buildPriceLabels(this.priceBounds);
+    }
+
+    /**
+     * Agrega o actualiza un servicio en las facetas
+     */
+    public void upsert(ServiceResponseDTO service) {
+        UUID serviceId = service.getServiceId();
+        if (serviceId == null) {
+            return;
+        }
+        String category = service.getSafeCategoryName();
+        String country = service.getCountryName() != null && !service.getCountryName().isBlank()
+                ? service.getCountryName()
+                : NO_COUNTRY;
+        String priceRange = priceRangeOf(service.getPrice());
+
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(serviceId);
+            int slot;
+            if (previous != null) {
+                slot = previous.slot();
+                clear(categories, previous.category(), slot);
+                clear(countries, previous.country(), slot);
+                clear(priceRanges, previous.priceRange(), slot);
+            } else {
+                slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+                all.set(slot);
+            }
+            entries.put(serviceId, new Entry(slot, category, country, priceRange));
+            categories.computeIfAbsent(category, key -> new BitSet()).set(slot);
+            countries.computeIfAbsent(country, key -> new BitSet()).set(slot);
+            priceRanges.computeIfAbsent(priceRange, key -> new BitSet()).set(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un servicio de las facetas (eventos DELETED)
+     */
+    public void remove(UUID serviceId) {
+        if (serviceId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(serviceId);
+            if (previous != null) {
+                clear(categories, previous.category(), previous.slot());
+                clear(countries, previous.country(), previous.slot());
+                clear(priceRanges, previous.priceRange(), previous.slot());
+                all.clear(previous.slot());
+                freeSlots.push(previous.slot());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calcula los conteos por faceta bajo los filtros indicados (null = sin filtro)
+     */
+    public CatalogFacetsDTO getFacets(String category, String country, String priceRange) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryFilter = filter(categories, category);
+            BitSet countryFilter = filter(countries, country);
+            BitSet priceFilter = filter(priceRanges, priceRange);
+
+            BitSet matching = intersect(categoryFilter, countryFilter, priceFilter);
+
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            BitSet priceScope = intersect(categoryFilter, countryFilter, null);
+            for (String label : priceLabels) {
+                int count = countWithin(priceRanges.get(label), priceScope);
+                if (count > 0) {
+                    priceCounts.put(label, count);
+                }
+            }
+
+            return CatalogFacetsDTO.builder()
+                    .total(matching.cardinality())
+                    .categories(counts(categories, intersect(null, countryFilter, priceFilter)))
+                    .countries(counts(countries, intersect(categoryFilter, null, priceFilter)))
+                    .priceRanges(priceCounts)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de servicios en las facetas
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Etiqueta del rango de precio de un valor (ej: "10000-50000", "500000+")
+     */
+    String priceRangeOf(BigDecimal price) {
+        if (price == null) {
+            return NO_PRICE;
+        }
+        for (int i = 0; i < priceBounds.length; i++) {
+            if (price.compareTo(priceBounds[i]) < 0) {
+                return priceLabels.get(i);
+            }
+        }
+        return priceLabels.get(priceBounds.length);
+    }
+
+    private static List<String> buildPriceLabels(BigDecimal[] bounds) {
+        List<String> labels = new ArrayList<>(bounds.length + 2);
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal bound : bounds) {
+            labels.add(lower.toPlainString() + "-" + bound.toPlainString());
+            lower = bound;
+        }
+        labels.add(lower.toPlainString() + "+");
+        labels.add(NO_PRICE);
+        return List.copyOf(labels);
+    }
+
+    /**
+     * BitSet del valor filtrado; null si no hay filtro, vacío si el valor no existe
+     */
+    private static BitSet filter(Map<String, BitSet> facet, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        BitSet bits = facet.get(value);
+        return bits != null ? bits : new BitSet();
+    }
+
+    private BitSet intersect(BitSet first, BitSet second, BitSet third) {
+        BitSet result = (BitSet) all.clone();
+        if (first != null) {
+            result.and(first);
+        }
+        if (second != null) {
+            result.and(second);
+        }
+        if (third != null) {
+            result.and(third);
+        }
+        return result;
+    }
+
+    /**
+     * Conteo por valor dentro del alcance, ordenado de mayor a menor
+     */
+    private static Map<String, Integer> counts(Map<String, BitSet> facet, BitSet scope) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(facet.size());
+        facet.forEach((value, bits) -> {
+            int count = countWithin(bits, scope);
+            if (count > 0) {
+                counts.add(Map.entry(value, count));
+            }
+        });
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        counts.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private static int countWithin(BitSet bits, BitSet scope) {
+        if (bits == null) {
+            return 0;
+        }
+        BitSet result = (BitSet) bits.clone();
+        result.and(scope);
+        return result.cardinality();
+    }
+
+    private static void clear(Map<String, BitSet> facet, String value, int slot) {
+        BitSet bits = facet.get(value);
+        if (bits != null) {
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                facet.remove(value);
+            }
+        }
+    }
+
+    private record Entry(int slot, String category, String country, String priceRange) {
+    }
+}
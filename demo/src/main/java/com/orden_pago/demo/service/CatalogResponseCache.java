@@ -0,0 +1,207 @@
+package com.orden_pago.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas del catálogo ya serializadas (JSON plano y gzip), una por
+ * versión del catálogo y por página
+ *
+ * El catálogo cambia mucho menos de lo que se lee: cada listado se serializa
+ * una sola vez por versión y las siguientes peticiones escriben los mismos
+ * bytes. Cuando la ingesta sube la versión se descartan las páginas de la
+ * versión anterior.
+ */
+@Service
+@Slf4j
+public class CatalogResponseCache {
+
+    private final ObjectMapper objectMapper;
+
+    private volatile VersionedPages current = new VersionedPages(-1L);
+
+    @Value("${catalog.response-cache.max-pages:64}")
+    private int maxPages;
+
+    public CatalogResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Obtiene el catálogo completo ya serializado
+     */
+    public RenderedCatalog getCatalog() {
+        return getPage(null, 0);
+    }
+
+    /**
+     * Obtiene una página del catálogo ya serializada (page null = catálogo completo)
+     */
+    public RenderedCatalog getPage(Integer page, int size) {
+        long version = ServiceKafkaConsumer.getCatalogVersion();
+        String key = page == null ? "all" : page + ":" + size;
+
+        VersionedPages pages = current;
+        if (pages.version < version) {
+            pages = new VersionedPages(version);
+            current = pages;
+        }
+
+        RenderedCatalog cached = pages.version == version ? pages.rendered.get(key) : null;
+        if (cached != null) {
+            return cached;
+        }
+
+        List<ServiceResponseDTO> services = ServiceKafkaConsumer.getAllAvailableServices();
+        RenderedCatalog rendered = render(ServiceKafkaConsumer.catalogETag(version), slice(services, page, size));
+
+        // Solo se guarda si la lista leída corresponde a la versión (sin ingesta entre medio)
+        if (pages.version == version && ServiceKafkaConsumer.getCatalogVersion() == version
+                && pages.rendered.size() < maxPages) {
+            RenderedCatalog previous = pages.rendered.putIfAbsent(key, rendered);
+            return previous != null ? previous : rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Descarta las páginas de versiones anteriores (llamado tras la ingesta)
+     */
+    public void evictStale() {
+        VersionedPages pages = current;
+        long version = ServiceKafkaConsumer.getCatalogVersion();
+        if (pages.version < version && !pages.rendered.isEmpty()) {
+            current = new VersionedPages(version);
+            log.debug("Respuestas del catálogo de la versión {} descartadas", pages.version);
+        }
+    }
+
+    /**
+     * Indica si el encabezado Accept-Encoding admite gzip y el cliente no
+     * prefiere la representación plana
+     *
+     * Se evalúa cada codificación con su peso q: gzip (o x-gzip) o * con q > 0
+     * la admiten, gzip;q=0 la rechaza aunque haya un *, y si identity aparece
+     * explícitamente con un peso mayor que gzip se responde sin comprimir.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+
+        double gzipQuality = -1;
+        double wildcardQuality = -1;
+        double identityQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                        && parameter.charAt(1) == '=') {
+                    quality = parseQuality(parameter.substring(2).trim());
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzipQuality = Math.max(gzipQuality, quality);
+                case "*" -> wildcardQuality = quality;
+                case "identity" -> identityQuality = quality;
+                default -> {
+                }
+            }
+        }
+
+        double effective = gzipQuality >= 0 ? gzipQuality : wildcardQuality;
+        return effective > 0 && effective >= identityQuality;
+    }
+
+    private static double parseQuality(String value) {
+        try {
+            double quality = Double.parseDouble(value);
+            return quality >= 0 && quality <= 1 ? quality : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * ETag de la representación gzip para un ETag del catálogo
+     */
+    public static String gzipETag(String etag) {
+        return etag + "-gzip";
+    }
+
+    /**
+     * Cantidad de páginas serializadas de la versión actual
+     */
+    public int size() {
+        return current.rendered.size();
+    }
+
+    private List<ServiceResponseDTO> slice(List<ServiceResponseDTO> services, Integer page, int size) {
+        if (page == null) {
+            return services;
+        }
+        long from = (long) page * size;
+        if (from >= services.size()) {
+            return List.of();
+        }
+        return services.subList((int) from, (int) Math.min(services.size(), from + size));
+    }
+
+    private RenderedCatalog render(String etag, List<ServiceResponseDTO> services) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(services);
+            return new RenderedCatalog(etag, services.size(), identity, gzip(identity));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializando el catálogo: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static final class VersionedPages {
+        private final long version;
+        private final Map<String, RenderedCatalog> rendered = new ConcurrentHashMap<>();
+
+        private VersionedPages(long version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * Catálogo serializado: los arreglos no se modifican después de construirse
+     */
+    public record RenderedCatalog(String etag, int count, byte[] identity, byte[] gzip) {
+
+        /**
+         * ETag de la representación gzip (distinto del de la representación plana)
+         */
+        public String gzipEtag() {
+            return gzipETag(etag);
+        }
+    }
+}
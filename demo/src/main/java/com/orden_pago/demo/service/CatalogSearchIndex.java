@@ -0,0 +1,214 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para buscar en el catálogo por título,
+ * descripción y categoría
+ *
+ * Los textos se normalizan para español (minúsculas, sin tildes, sin
+ * palabras vacías y sin la "s" final del plural) y cada término del query se
+ * busca como prefijo. Los resultados deben contener todos los términos y se
+ * ordenan por frecuencia ponderada del término (el título pesa más que la
+ * categoría y ésta más que la descripción) y por averageRating.
+ *
+ * Se actualiza servicio por servicio desde la ingesta de Kafka. Las
+ * escrituras se serializan entre sí, pero las lecturas no toman locks: una
+ * búsqueda concurrente con una actualización ve el servicio antes o después
+ * del cambio (o brevemente una mezcla de ambos), nunca se bloquea.
+ *
+ * El índice no guarda los servicios: devuelve serviceIds ordenados y quien
+ * busca los lee del catálogo (ver CartService.searchAvailableServices). Los
+ * servicios desalojados del catálogo por memoria siguen indexados.
+ */
+@Service
+@Slf4j
+public class CatalogSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los", "o", "para",
+            "por", "que", "se", "sin", "su", "sus", "un", "una", "unas", "unos", "y");
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // término -> (servicio -> frecuencia ponderada)
+    private final ConcurrentSkipListMap<String, Map<UUID, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<UUID, IndexedService> documents = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    @Value("${catalog.search.max-prefix-expansions:64}")
+    private int maxPrefixExpansions;
+
+    /**
+     * Indexa (o reindexa) un servicio recibido desde Kafka
+     */
+    public void index(ServiceResponseDTO service) {
+        UUID serviceId = service.getServiceId();
+        if (serviceId == null) {
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, service.getName(), TITLE_WEIGHT);
+        addTerms(terms, service.getCategoryName(), CATEGORY_WEIGHT);
+        addTerms(terms, service.getDescription(), DESCRIPTION_WEIGHT);
+
+        synchronized (writeLock) {
+            IndexedService previous = documents.put(serviceId,
+                    new IndexedService(service.getSafeAverageRating(), terms));
+            if (previous != null) {
+                previous.terms().keySet().stream()
+                        .filter(term -> !terms.containsKey(term))
+                        .forEach(term -> removePosting(term, serviceId));
+            }
+            terms.forEach((term, frequency) -> postings
+                    .computeIfAbsent(term, key -> new ConcurrentHashMap<>())
+                    .put(serviceId, frequency));
+        }
+        log.debug("🔎 Servicio {} indexado con {} términos", serviceId, terms.size());
+    }
+
+    /**
+     * Quita un servicio del índice (eventos DELETED)
+     */
+    public void remove(UUID serviceId) {
+        if (serviceId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            IndexedService previous = documents.remove(serviceId);
+            if (previous != null) {
+                previous.terms().keySet().forEach(term -> removePosting(term, serviceId));
+                log.debug("🔎 Servicio {} eliminado del índice de búsqueda", serviceId);
+            }
+        }
+    }
+
+    /**
+     * Busca servicios que contengan todos los términos del query (como
+     * prefijo); devuelve sus serviceIds del más al menos relevante
+     */
+    public List<UUID> search(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, Double> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<UUID, Double> termScores = scoreTerm(queryTerm);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<UUID, Double> current = termScores;
+                scores.keySet().retainAll(current.keySet());
+                scores.replaceAll((serviceId, score) -> score + current.get(serviceId));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<ScoredService> results = new ArrayList<>(scores.size());
+        scores.forEach((serviceId, score) -> {
+            IndexedService indexed = documents.get(serviceId);
+            if (indexed != null) {
+                results.add(new ScoredService(serviceId, score * (1.0 + indexed.rating() / 5.0)));
+            }
+        });
+
+        return results.stream()
+                .sorted(Comparator.comparingDouble(ScoredService::score).reversed())
+                .map(ScoredService::serviceId)
+                .toList();
+    }
+
+    /**
+     * Cantidad de servicios indexados
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Normaliza y separa un texto en términos para el índice
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) {
+                continue;
+            }
+            // Plural simple: "clases" -> "clase", "profesores" -> "profesore" (sigue siendo prefijo)
+            tokens.add(token.length() > 3 && token.endsWith("s") ? token.substring(0, token.length() - 1) : token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Puntaje por servicio para un término del query: coincidencia exacta
+     * completa, coincidencia por prefijo a la mitad
+     */
+    private Map<UUID, Double> scoreTerm(String queryTerm) {
+        Map<UUID, Double> scores = new HashMap<>();
+        NavigableMap<String, Map<UUID, Integer>> matches = postings.subMap(queryTerm, true,
+                queryTerm + Character.MAX_VALUE, false);
+        int expansions = 0;
+        for (Map.Entry<String, Map<UUID, Integer>> match : matches.entrySet()) {
+            if (expansions++ >= maxPrefixExpansions) {
+                break;
+            }
+            double weight = match.getKey().equals(queryTerm) ? 1.0 : 0.5;
+            match.getValue().forEach((serviceId, frequency) -> scores.merge(serviceId, frequency * weight, Double::sum));
+        }
+        return scores;
+    }
+
+    private void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removePosting(String term, UUID serviceId) {
+        Map<UUID, Integer> serviceIds = postings.get(term);
+        if (serviceIds != null) {
+            serviceIds.remove(serviceId);
+            if (serviceIds.isEmpty()) {
+                postings.remove(term, serviceIds);
+            }
+        }
+    }
+
+    private record IndexedService(double rating, Map<String, Integer> terms) {
+    }
+
+    private record ScoredService(UUID serviceId, double score) {
+    }
+}
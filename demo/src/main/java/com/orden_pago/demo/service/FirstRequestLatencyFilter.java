@@ -0,0 +1,95 @@
+package com.orden_pago.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mide la latencia de las primeras peticiones después de aceptar tráfico
+ * (sin contar actuator), para comparar el arranque con y sin calentamiento
+ *
+ * Cada una se registra en el timer startup.first-requests; al completar la
+ * muestra se informa p50, p99 y máximo en el log.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class FirstRequestLatencyFilter extends OncePerRequestFilter {
+
+    private final ApplicationAvailability availability;
+    private final Timer timer;
+    private final long[] samples;
+    private final AtomicInteger taken = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public FirstRequestLatencyFilter(ApplicationAvailability availability, MeterRegistry meterRegistry,
+            @Value("${startup.warmup.first-requests:200}") int sampleSize) {
+        this.availability = availability;
+        this.samples = new long[Math.max(1, sampleSize)];
+        this.timer = Timer.builder("startup.first-requests")
+                .description("Latencia de las primeras peticiones después de aceptar tráfico")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return taken.get() >= samples.length
+                || request.getRequestURI().startsWith("/actuator")
+                || availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int slot = taken.getAndIncrement();
+        if (slot >= samples.length) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            samples[slot] = elapsed;
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (completed.incrementAndGet() == samples.length) {
+                report();
+            }
+        }
+    }
+
+    private void report() {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        log.info("⏱️ Primeras {} peticiones tras aceptar tráfico: p50 {} ms, p99 {} ms, máx {} ms",
+                sorted.length, millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
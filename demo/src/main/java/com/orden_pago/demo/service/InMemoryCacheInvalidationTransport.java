@@ -0,0 +1,45 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transporte de invalidaciones dentro de la JVM, en lugar de Kafka
+ *
+ * Todas las instancias conectadas al mismo clúster reciben cada invalidación
+ * de forma síncrona, antes de que send retorne. Sirve para pruebas y para
+ * levantar varias instancias en un mismo proceso.
+ */
+public class InMemoryCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    // Clúster compartido por las instancias de la JVM que no indican uno propio
+    private static final List<Consumer<CacheInvalidationDTO>> JVM_CLUSTER = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<CacheInvalidationDTO>> cluster;
+
+    public InMemoryCacheInvalidationTransport() {
+        this(JVM_CLUSTER);
+    }
+
+    /**
+     * @param cluster receptores de las instancias del clúster (compartido entre ellas)
+     */
+    public InMemoryCacheInvalidationTransport(List<Consumer<CacheInvalidationDTO>> cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    public void send(CacheInvalidationDTO invalidation) {
+        for (Consumer<CacheInvalidationDTO> receiver : cluster) {
+            receiver.accept(invalidation);
+        }
+    }
+
+    @Override
+    public void connect(Consumer<CacheInvalidationDTO> receiver) {
+        cluster.add(receiver);
+    }
+}
@@ -4,23 +4,36 @@ import com.orden_pago.demo.dto.PaymentHistoryDTO;
 import com.orden_pago.demo.dto.PaymentRequest;
 import com.orden_pago.demo.dto.PaymentResponse;
 import com.orden_pago.demo.dto.PaymentResult;
+import com.orden_pago.demo.dto.PaymentStatusEventDTO;
+import com.orden_pago.demo.dto.PriceChangeDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.CartPricingMode;
 import com.orden_pago.demo.enums.PaymentStatus;
+import com.orden_pago.demo.model.ArchivedPayment;
 import com.orden_pago.demo.model.Cart;
 import com.orden_pago.demo.model.Payment;
+import com.orden_pago.demo.repository.ArchivedPaymentRepository;
 import com.orden_pago.demo.repository.CartRepository;
 import com.orden_pago.demo.repository.PaymentRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,18 +42,55 @@ import java.util.UUID;
 public class PaymentService {
 
     private final PaymentRepository paymentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
     private final CartRepository cartRepository;
     private final CartService cartService;
     private final PaymentSimulationService paymentSimulationService;
+    private final PaymentStatusHub paymentStatusHub;
+    private final TransactionTemplate transactionTemplate;
     // private final KafkaMessagingService kafkaMessagingService;
 
+    @Value("${cart.pricing.mode:EAGER}")
+    private CartPricingMode pricingMode;
+
     /**
      * Procesa un pago simulado
+     *
+     * En modo lazy los precios actuales se resuelven antes de abrir la
+     * transacción (puede esperar al marketplace); el resto corre en una
+     * única transacción
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PaymentResponse processPayment(PaymentRequest request, Authentication authentication) {
         String userId = getUserIdFromAuth(authentication);
         log.info("Procesando pago para usuario: {}, carrito: {}", userId, request.getCartId());
 
+        Map<UUID, ServiceResponseDTO> currentServices = null;
+        if (pricingMode == CartPricingMode.LAZY) {
+            validateCartForPayment(request.getCartId(), userId);
+            currentServices = cartService.resolveCheckoutServices(request.getCartId());
+        }
+
+        Map<UUID, ServiceResponseDTO> resolvedServices = currentServices;
+        return transactionTemplate.execute(status -> processPaymentInTransaction(request, userId, resolvedServices));
+    }
+
+    /**
+     * Checkout del calentamiento de arranque: corre en la transacción del
+     * llamador (que la revierte) con los servicios ya resueltos, sin consultar
+     * al marketplace, y su pago no cuenta en las métricas de la pasarela
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public PaymentResponse warmUpCheckout(PaymentRequest request, Authentication authentication,
+            Map<UUID, ServiceResponseDTO> services) {
+        String userId = getUserIdFromAuth(authentication);
+        Map<UUID, ServiceResponseDTO> currentServices = pricingMode == CartPricingMode.LAZY ? services : null;
+        return paymentSimulationService.withoutMetrics(
+                () -> processPaymentInTransaction(request, userId, currentServices));
+    }
+
+    private PaymentResponse processPaymentInTransaction(PaymentRequest request, String userId,
+            Map<UUID, ServiceResponseDTO> currentServices) {
         // Validar que el carrito existe y pertenece al usuario
         Cart cart = validateCartForPayment(request.getCartId(), userId);
 
@@ -54,6 +104,31 @@ public class PaymentService {
             throw new RuntimeException("No se puede procesar pago de un carrito vacío");
         }
 
+        // Modo lazy: conciliar los precios contra el catálogo actual antes de cobrar;
+        // si algo cambió, el carrito queda re-preciado y el cliente debe confirmar de nuevo.
+        // Un precio que no se pudo verificar no se cobra
+        if (currentServices != null) {
+            List<PriceChangeDTO> priceChanges = cartService.reconcileCartPrices(cart, currentServices);
+            if (!priceChanges.isEmpty()) {
+                PaymentResponse response = PaymentResponse.builder()
+                        .status(PaymentStatus.FAILED)
+                        .amount(cart.getTotalAmount())
+                        .priceChanges(priceChanges)
+                        .processedAt(LocalDateTime.now())
+                        .build();
+                if (response.hasUnverifiedPrices()) {
+                    log.warn("Pago del carrito {} detenido: precios sin verificar contra el marketplace", cart.getId());
+                    response.setMessage("No se pudo verificar el precio actual de algunos servicios. "
+                            + "Intenta nuevamente en unos momentos");
+                } else {
+                    log.info("Pago del carrito {} detenido: {} precios cambiaron", cart.getId(), priceChanges.size());
+                    response.setMessage("Los precios del carrito cambiaron. "
+                            + "Revisa los nuevos precios y confirma el pago nuevamente");
+                }
+                return response;
+            }
+        }
+
         // Validar datos de la tarjeta
         if (!paymentSimulationService.validateCardData(request)) {
             return PaymentResponse.builder()
@@ -96,6 +171,7 @@ public class PaymentService {
             }
 
             return PaymentResponse.builder()
+                    .paymentId(payment.getId())
                     .transactionId(result.getTransactionId())
                     .status(result.getStatus())
                     .amount(payment.getAmount())
@@ -107,6 +183,7 @@ public class PaymentService {
             log.error("Error procesando pago: {}", e.getMessage());
             payment.failPayment();
             paymentRepository.save(payment);
+            paymentStatusHub.publish(PaymentStatusEventDTO.fromPayment(payment));
 
             // Publicar evento de pago fallido
             // kafkaMessagingService.publishPaymentEvent(
@@ -114,6 +191,7 @@ public class PaymentService {
             // payment.getAmount(), "Error interno procesando el pago"));
 
             return PaymentResponse.builder()
+                    .paymentId(payment.getId())
                     .status(PaymentStatus.FAILED)
                     .message("Error interno procesando el pago")
                     .processedAt(LocalDateTime.now())
@@ -123,6 +201,7 @@ public class PaymentService {
 
     /**
      * Obtiene el historial de pagos del usuario como DTOs
+     * Combina los pagos de la tabla activa con los del histórico archivado
      */
     @Transactional(readOnly = true)
     public List<PaymentHistoryDTO> getPaymentHistory(Authentication authentication) {
@@ -130,9 +209,13 @@ public class PaymentService {
         log.info("Obteniendo historial de pagos para usuario: {}", userId);
 
         List<Payment> payments = paymentRepository.findByUserIdOrderByProcessedAtDesc(userId);
+        List<ArchivedPayment> archivedPayments = archivedPaymentRepository.findByUserIdOrderByProcessedAtDesc(userId);
 
-        return payments.stream()
-                .map(this::convertToPaymentHistoryDTO)
+        return Stream.concat(
+                payments.stream().map(this::convertToPaymentHistoryDTO),
+                archivedPayments.stream().map(this::convertToPaymentHistoryDTO))
+                .sorted(Comparator.comparing(PaymentHistoryDTO::getProcessedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
                 .toList();
     }
 
@@ -140,8 +223,29 @@ public class PaymentService {
      * Obtiene un pago por transaction ID
      */
     @Transactional(readOnly = true)
-    public Optional<Payment> getPaymentByTransactionId(String transactionId) {
-        return paymentRepository.findByTransactionId(transactionId);
+    public Optional<PaymentHistoryDTO> getPaymentByTransactionId(String transactionId) {
+        return paymentRepository.findByTransactionId(transactionId)
+                .map(this::convertToPaymentHistoryDTO);
+    }
+
+    /**
+     * Suscribe al cliente a las transiciones de estado de un pago propio
+     * El primer evento es el estado actual; el stream termina en COMPLETED/FAILED
+     */
+    public Flux<PaymentStatusEventDTO> streamPaymentStatus(UUID paymentId, Authentication authentication) {
+        String userId = getUserIdFromAuth(authentication);
+        log.info("Suscribiendo usuario {} a eventos del pago {}", userId, paymentId);
+
+        return paymentStatusHub.subscribe(paymentId, () -> {
+            Payment payment = paymentRepository.findById(paymentId)
+                    .orElseThrow(() -> new RuntimeException("Pago no encontrado: " + paymentId));
+
+            if (!userId.equals(payment.getUserId())) {
+                throw new RuntimeException("El pago no pertenece al usuario autenticado");
+            }
+
+            return PaymentStatusEventDTO.fromPayment(payment);
+        });
     }
 
     /**
@@ -184,6 +288,7 @@ public class PaymentService {
         payment.setProcessedAt(result.getProcessedAt());
 
         paymentRepository.save(payment);
+        paymentStatusHub.publish(PaymentStatusEventDTO.fromPayment(payment));
     }
 
     /**
@@ -219,4 +324,25 @@ public class PaymentService {
                 .build();
     }
 
+    /**
+     * Convierte un pago archivado a PaymentHistoryDTO
+     */
+    private PaymentHistoryDTO convertToPaymentHistoryDTO(ArchivedPayment payment) {
+        return PaymentHistoryDTO.builder()
+                .id(payment.getId())
+                .cartId(payment.getCartId())
+                .transactionId(payment.getTransactionId())
+                .amount(payment.getAmount())
+                .method(payment.getMethod())
+                .status(payment.getStatus())
+                .cardHolderName(payment.getCardHolderName())
+                .maskedCardNumber(payment.getCardNumber())
+                .processedAt(payment.getProcessedAt())
+                .message(
+                        payment.getStatus() == PaymentStatus.COMPLETED ? "Pago procesado exitosamente" : "Pago fallido")
+                .itemCount(payment.getItemCount())
+                .cartCreatedAt(payment.getCartCreatedAt())
+                .build();
+    }
+
 }
\ No newline at end of file
@@ -3,18 +3,34 @@ package com.orden_pago.demo.service;
 import com.orden_pago.demo.dto.PaymentRequest;
 import com.orden_pago.demo.dto.PaymentResult;
 import com.orden_pago.demo.enums.PaymentStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class PaymentSimulationService {
 
     private final Random random = new Random();
+    private final TransactionIdGenerator transactionIdGenerator;
+
+    // Pagos en curso en la pasarela (clave propia de cada llamada → inicio en System.nanoTime())
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextInFlightKey = new AtomicLong();
+    private final Timer gatewayTimer;
+    // Pagos del calentamiento de arranque (ver withoutMetrics): no cuentan en las métricas de la pasarela
+    private final ThreadLocal<Boolean> unmetered = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
     @Value("${payment.simulation.success-rate:0.85}")
     private double successRate;
@@ -25,14 +41,36 @@ public class PaymentSimulationService {
     @Value("${payment.simulation.max-delay:5000}")
     private int maxDelay;
 
+    public PaymentSimulationService(TransactionIdGenerator transactionIdGenerator, MeterRegistry meterRegistry) {
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.gatewayTimer = Timer.builder("payment.gateway.latency")
+                .description("Latencia de la pasarela de pagos simulada")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("payment.gateway.in-flight", inFlight, Map::size);
+    }
+
     /**
      * Simula un procesamiento de pago
      */
     public PaymentResult simulatePayment(PaymentRequest request) {
         log.info("Iniciando simulación de pago para carrito: {}", request.getCartId());
 
-        // Simula la latencia de procesamiento
-        simulateProcessingDelay();
+        // Simula la latencia de procesamiento (el pago sigue PENDING mientras tanto)
+        boolean metered = !unmetered.get();
+        long key = nextInFlightKey.incrementAndGet();
+        long start = System.nanoTime();
+        if (metered) {
+            inFlight.put(key, start);
+        }
+        try {
+            simulateProcessingDelay();
+        } finally {
+            if (metered) {
+                inFlight.remove(key);
+                gatewayTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
 
         // Simula diferentes escenarios de pago
         boolean isSuccessful = random.nextDouble() < successRate;
@@ -59,6 +97,43 @@ public class PaymentSimulationService {
         }
     }
 
+    /**
+     * Ejecuta la acción sin registrar sus pagos en las métricas de la pasarela
+     * (payment.gateway.latency y payment.gateway.in-flight)
+     */
+    public <T> T withoutMetrics(Supplier<T> action) {
+        unmetered.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            unmetered.remove();
+        }
+    }
+
+    /**
+     * Cantidad de pagos esperando respuesta de la pasarela
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Antigüedad del pago más viejo en la pasarela (cero si no hay ninguno);
+     * recorre solo los pagos en curso
+     */
+    public Duration getOldestInFlightAge() {
+        long now = System.nanoTime();
+        long oldest = inFlight.values().stream().mapToLong(start -> now - start).max().orElse(0);
+        return Duration.ofNanos(oldest);
+    }
+
+    /**
+     * Latencias de la pasarela desde el arranque
+     */
+    public Timer getGatewayTimer() {
+        return gatewayTimer;
+    }
+
     /**
      * Simula la latencia de procesamiento del pago
      */
@@ -77,7 +152,7 @@ public class PaymentSimulationService {
      * Genera un ID de transacción único para el pago simulado
      */
     private String generateTransactionId() {
-        return "TXN-" + System.currentTimeMillis() + "-" + random.nextInt(10000);
+        return transactionIdGenerator.nextTransactionId();
     }
 
     /**
@@ -0,0 +1,124 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.PaymentStatusEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hub en memoria que difunde las transiciones de estado de cada pago a los
+ * clientes suscritos
+ *
+ * Solo existe una entrada por pago mientras haya clientes esperando; se
+ * elimina al llegar a un estado final, o cuando el último cliente se
+ * desconecta o agota su tiempo de espera.
+ */
+@Service
+@Slf4j
+public class PaymentStatusHub {
+
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+
+    @Value("${payment.events.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    /**
+     * Publica una transición de estado. Si hay una transacción activa, se
+     * emite después del commit para no notificar estados que no se guardaron.
+     */
+    public void publish(PaymentStatusEventDTO event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emit(event);
+                }
+            });
+        } else {
+            emit(event);
+        }
+    }
+
+    /**
+     * Suscribe a un pago. El canal se registra antes de leer el estado actual
+     * para no perder transiciones que ocurran entre la lectura y la
+     * suscripción.
+     */
+    public Flux<PaymentStatusEventDTO> subscribe(UUID paymentId, Supplier<PaymentStatusEventDTO> currentState) {
+        Channel channel = channels.compute(paymentId, (id, existing) -> {
+            Channel target = existing != null ? existing : new Channel();
+            target.subscribers.incrementAndGet();
+            return target;
+        });
+
+        PaymentStatusEventDTO current;
+        try {
+            current = currentState.get();
+        } catch (RuntimeException e) {
+            release(paymentId, channel);
+            throw e;
+        }
+
+        if (current.isTerminal()) {
+            release(paymentId, channel);
+            return Flux.just(current);
+        }
+
+        return Flux.concat(Flux.just(current), channel.sink.asFlux())
+                .distinctUntilChanged(PaymentStatusEventDTO::getStatus)
+                .takeUntil(PaymentStatusEventDTO::isTerminal)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .onErrorResume(TimeoutException.class, e -> {
+                    log.info("⏱️ Tiempo de espera agotado para eventos del pago {}", paymentId);
+                    return Flux.empty();
+                })
+                .doFinally(signal -> release(paymentId, channel));
+    }
+
+    /**
+     * Cantidad de pagos con clientes esperando
+     */
+    public int getActiveChannelCount() {
+        return channels.size();
+    }
+
+    private void emit(PaymentStatusEventDTO event) {
+        Channel channel = event.isTerminal()
+                ? channels.remove(event.getPaymentId())
+                : channels.get(event.getPaymentId());
+        if (channel == null) {
+            return;
+        }
+        channel.sink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(50)));
+        if (event.isTerminal()) {
+            channel.sink.tryEmitComplete();
+        }
+        log.debug("📨 Estado {} del pago {} notificado", event.getStatus(), event.getPaymentId());
+    }
+
+    private void release(UUID paymentId, Channel channel) {
+        channels.computeIfPresent(paymentId, (id, existing) -> {
+            if (existing != channel) {
+                return existing;
+            }
+            return channel.subscribers.decrementAndGet() == 0 ? null : existing;
+        });
+    }
+
+    private static final class Channel {
+        private final Sinks.Many<PaymentStatusEventDTO> sink = Sinks.many().replay().latest();
+        private final AtomicInteger subscribers = new AtomicInteger();
+    }
+}
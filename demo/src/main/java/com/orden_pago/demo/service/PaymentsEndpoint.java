@@ -0,0 +1,52 @@
+package com.orden_pago.demo.service;
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoint de actuator con los pagos en curso en esta instancia
+ *
+ * GET /actuator/payments: pagos esperando a la pasarela (siguen PENDING
+ * hasta que responde), antigüedad del más viejo, clientes esperando su
+ * resultado por SSE y resumen de latencias de la pasarela. Se calcula en
+ * memoria, sin consultar la tabla de pagos.
+ */
+@Component
+@Endpoint(id = "payments")
+public class PaymentsEndpoint {
+
+    private final PaymentSimulationService paymentSimulationService;
+    private final PaymentStatusHub paymentStatusHub;
+
+    public PaymentsEndpoint(PaymentSimulationService paymentSimulationService, PaymentStatusHub paymentStatusHub) {
+        this.paymentSimulationService = paymentSimulationService;
+        this.paymentStatusHub = paymentStatusHub;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("inFlight", paymentSimulationService.getInFlightCount());
+        status.put("oldestInFlightMillis", paymentSimulationService.getOldestInFlightAge().toMillis());
+        status.put("statusSubscriptions", paymentStatusHub.getActiveChannelCount());
+
+        HistogramSnapshot snapshot = paymentSimulationService.getGatewayTimer().takeSnapshot();
+        Map<String, Object> gateway = new LinkedHashMap<>();
+        gateway.put("count", snapshot.count());
+        gateway.put("meanMillis", Math.round(snapshot.mean(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            gateway.put("p" + Math.round(percentile.percentile() * 100) + "Millis",
+                    Math.round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        gateway.put("maxMillis", Math.round(snapshot.max(TimeUnit.MILLISECONDS)));
+        status.put("gatewayLatency", gateway);
+        return status;
+    }
+}
@@ -0,0 +1,297 @@
+package com.orden_pago.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.orden_pago.demo.dto.CartResponse;
+import com.orden_pago.demo.dto.PaymentRequest;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.PaymentMethod;
+import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.service.kafka.CatalogCatchUpTracker;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calentamiento de la instancia antes de recibir tráfico
+ *
+ * Corre como ApplicationRunner, así que Spring Boot no pasa el estado de
+ * readiness a ACCEPTING_TRAFFIC (ni /actuator/health/readiness a UP) hasta
+ * que termina. La instancia se registra en Eureka como STARTING
+ * (eureka.instance.initial-status) y pasa a UP cuando la readiness acepta
+ * tráfico, así el balanceador no le envía peticiones antes.
+ *
+ * Mientras tanto:
+ * - descarga el JWK set del servidor de autorización;
+ * - espera a que el consumidor del catálogo tenga particiones asignadas y
+ *   haya procesado los eventos pendientes en ellas (CatalogCatchUpTracker),
+ *   o a que venza catalog-timeout;
+ * - recorre los caminos del carrito, el checkout y el catálogo con un
+ *   usuario y un servicio sintéticos (no depende de que el catálogo tenga
+ *   datos) dentro de una transacción que se revierte, para que el JIT, el
+ *   metamodelo de Hibernate y los serializadores de Jackson ya estén listos
+ *   para las primeras peticiones reales. El pago del checkout no cuenta en
+ *   las métricas de la pasarela.
+ */
+@Component
+@Slf4j
+public class StartupWarmupRunner implements ApplicationRunner {
+
+    private static final String WARMUP_CARD_NUMBER = "4111111111111111";
+
+    private final CartService cartService;
+    private final PaymentService paymentService;
+    private final CartETagCache cartETagCache;
+    private final CatalogResponseCache catalogResponseCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<JwtDecoder> jwtDecoder;
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+    private final CatalogCatchUpTracker catalogCatchUpTracker;
+    private final EntityManager entityManager;
+
+    private final AtomicLong warmupMillis = new AtomicLong();
+    private final AtomicLong timeToReadyMillis = new AtomicLong();
+
+    @Value("${startup.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.iterations:200}")
+    private int iterations;
+
+    @Value("${startup.warmup.catalog-timeout:10s}")
+    private Duration catalogTimeout;
+
+    @Value("${startup.warmup.jwk-timeout:5s}")
+    private Duration jwkTimeout;
+
+    public StartupWarmupRunner(CartService cartService, PaymentService paymentService, CartETagCache cartETagCache,
+            CatalogResponseCache catalogResponseCache, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager, ObjectProvider<JwtDecoder> jwtDecoder,
+            ObjectProvider<ApplicationInfoManager> applicationInfoManager,
+            CatalogCatchUpTracker catalogCatchUpTracker, EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.cartService = cartService;
+        this.paymentService = paymentService;
+        this.cartETagCache = cartETagCache;
+        this.catalogResponseCache = catalogResponseCache;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jwtDecoder = jwtDecoder;
+        this.applicationInfoManager = applicationInfoManager;
+        this.catalogCatchUpTracker = catalogCatchUpTracker;
+        this.entityManager = entityManager;
+
+        TimeGauge.builder("startup.warmup.duration", warmupMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Duración del calentamiento previo a aceptar tráfico")
+                .register(meterRegistry);
+        TimeGauge.builder("startup.time-to-ready", timeToReadyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Tiempo desde el arranque de la JVM hasta aceptar tráfico")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            log.info("Calentamiento de arranque deshabilitado");
+            return;
+        }
+        long start = System.nanoTime();
+        log.info("🔥 Calentando la instancia antes de aceptar tráfico");
+
+        CompletableFuture<Void> jwk = CompletableFuture.runAsync(this::prefetchJwkSet);
+        int catalogSize = awaitCatalogCatchUp();
+        try {
+            exerciseRequestPaths();
+        } catch (Exception e) {
+            log.warn("⚠️ Calentamiento de los caminos del carrito incompleto: {}", e.getMessage());
+        }
+        try {
+            jwk.get(jwkTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("⚠️ El JWK set no se descargó en {} ms; la primera petición autenticada lo pedirá",
+                    jwkTimeout.toMillis());
+        } catch (Exception e) {
+            log.warn("⚠️ Error descargando el JWK set: {}", e.getMessage());
+        }
+
+        warmupMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("🔥 Calentamiento terminado en {} ms ({} servicios en catálogo, {} iteraciones)",
+                warmupMillis.get(), catalogSize, iterations);
+    }
+
+    /**
+     * Refleja la readiness en el estado de Eureka: UP al aceptar tráfico,
+     * OUT_OF_SERVICE al rechazarlo
+     */
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        boolean accepting = event.getState() == ReadinessState.ACCEPTING_TRAFFIC;
+        if (accepting && timeToReadyMillis.get() == 0) {
+            timeToReadyMillis.set(ManagementFactory.getRuntimeMXBean().getUptime());
+            log.info("✅ Instancia lista para recibir tráfico {} ms después del arranque de la JVM "
+                    + "(calentamiento: {} ms)", timeToReadyMillis.get(), warmupMillis.get());
+        }
+
+        ApplicationInfoManager infoManager = applicationInfoManager.getIfAvailable();
+        if (infoManager != null && infoManager.getInfo() != null) {
+            InstanceInfo.InstanceStatus status = accepting
+                    ? InstanceInfo.InstanceStatus.UP
+                    : InstanceInfo.InstanceStatus.OUT_OF_SERVICE;
+            infoManager.setInstanceStatus(status);
+            log.info("📡 Estado en Eureka: {}", status);
+        }
+    }
+
+    public long getTimeToReadyMillis() {
+        return timeToReadyMillis.get();
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis.get();
+    }
+
+    /**
+     * Espera a que el consumidor del catálogo alcance los eventos pendientes
+     * de sus particiones o a que venza el plazo; devuelve el tamaño del catálogo
+     */
+    private int awaitCatalogCatchUp() {
+        long deadline = System.nanoTime() + catalogTimeout.toNanos();
+        while (!catalogCatchUpTracker.isCaughtUp() && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (!catalogCatchUpTracker.isCaughtUp()) {
+            log.warn("⚠️ El catálogo no alcanzó a los eventos pendientes en {} ms ({} sin procesar); "
+                    + "se acepta tráfico igualmente", catalogTimeout.toMillis(), catalogCatchUpTracker.getLag());
+        }
+        return ServiceKafkaConsumer.getAvailableServicesCount();
+    }
+
+    /**
+     * Recorre carrito, checkout y catálogo con un usuario y un servicio de
+     * prueba; nada se confirma en la base de datos
+     */
+    private void exerciseRequestPaths() {
+        String userId = "warmup-" + UUID.randomUUID();
+        Authentication authentication = new JwtAuthenticationToken(Jwt.withTokenValue("warmup")
+                .header("alg", "none")
+                .subject(userId)
+                .build());
+        ServiceResponseDTO service = syntheticService();
+        String searchQuery = ServiceKafkaConsumer.getAllAvailableServices().stream()
+                .map(ServiceResponseDTO::getTitle)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(service.getTitle());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                CartItem item = cartService.addItemToCartWithServiceInfo(authentication, service, 1);
+                // Como en una petición real, las lecturas siguientes cargan el carrito con sus items desde la base
+                entityManager.flush();
+                entityManager.clear();
+
+                for (int i = 0; i < iterations; i++) {
+                    CartResponse cart = cartService.getCurrentCartView(authentication);
+                    objectMapper.writeValueAsBytes(cart);
+                    objectMapper.writeValueAsBytes(cartService.updateItemQuantity(item.getId(), 1 + i % 3));
+                    objectMapper.writeValueAsBytes(paymentService.getPaymentHistory(authentication));
+                    objectMapper.writeValueAsBytes(cartService.getUserCartHistory(authentication));
+                    catalogResponseCache.getPage(0, 20);
+                    cartService.searchAvailableServices(searchQuery, 20);
+                    cartService.getAvailableServiceFacets(null, null, null);
+                }
+
+                // Checkout una sola vez: incluye la latencia simulada de la pasarela
+                PaymentRequest payment = new PaymentRequest();
+                payment.setCartId(cartService.getCurrentCart(authentication).getId());
+                payment.setMethod(PaymentMethod.CREDIT_CARD);
+                payment.setCardNumber(WARMUP_CARD_NUMBER);
+                payment.setCardHolderName("Warmup");
+                objectMapper.writeValueAsBytes(paymentService.warmUpCheckout(payment, authentication,
+                        Map.of(service.getServiceId(), service)));
+            } catch (Exception e) {
+                log.warn("⚠️ Error en el calentamiento de los caminos del carrito: {}", e.getMessage());
+            } finally {
+                cartETagCache.invalidate(userId);
+                status.setRollbackOnly();
+            }
+        });
+    }
+
+    /**
+     * Servicio que no existe en el marketplace: solo vive en la transacción
+     * del calentamiento
+     */
+    private static ServiceResponseDTO syntheticService() {
+        UUID serviceId = UUID.randomUUID();
+        return ServiceResponseDTO.builder()
+                .serviceId(serviceId.toString())
+                .id(serviceId)
+                .title("Servicio de calentamiento")
+                .description("Servicio sintético del calentamiento de arranque")
+                .price(new BigDecimal("10.00"))
+                .averageRating(5.0)
+                .categoryName("Calentamiento")
+                .eventType("CREATED")
+                .timestamp(Instant.now().toString())
+                .isActive(true)
+                .build();
+    }
+
+    /**
+     * Decodifica un token sin firma válida: el decodificador descarga y
+     * guarda el JWK set antes de rechazarlo
+     */
+    private void prefetchJwkSet() {
+        JwtDecoder decoder = jwtDecoder.getIfAvailable();
+        if (decoder == null) {
+            return;
+        }
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString("{\"sub\":\"warmup\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString("warmup".getBytes(StandardCharsets.UTF_8));
+        try {
+            decoder.decode(token);
+        } catch (Exception e) {
+            log.debug("Token de calentamiento rechazado (esperado): {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.orden_pago.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Asigna el nodo del generador de IDs de transacción
+ *
+ * El nodo se reclama con un arriendo en la tabla node_leases
+ * (TransactionNodeLeases), empezando por el hash del instance-id. El reclamo
+ * es atómico en la base de datos, así que la unicidad solo abarca a las
+ * instancias que comparten esa base: con una base en memoria por instancia
+ * (H2 por defecto) cada instancia ganaría siempre su arriendo, por lo que el
+ * arranque falla si transaction-id.node-id no está fijado.
+ *
+ * El arriendo se renueva cada transaction-id.lease-renew-interval; si una
+ * renovación falla (la instancia estuvo detenida más que el TTL y otra tomó
+ * el nodo) se reclama otro nodo libre. Mientras no se renueve, el generador
+ * deja de emitir IDs al pasar el vencimiento del último arriendo obtenido.
+ * transaction-id.node-id fija el nodo manualmente; aun así se reclama su
+ * arriendo y el arranque falla si otra instancia lo tiene.
+ */
+@Configuration
+@Slf4j
+public class TransactionIdConfig {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${transaction-id.node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${transaction-id.lease-ttl:60s}")
+    private Duration leaseTtl;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    private TransactionNodeLeases leases;
+    private TransactionIdGenerator generator;
+
+    public TransactionIdConfig(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Bean
+    public TransactionIdGenerator transactionIdGenerator() {
+        if (configuredNodeId < 0 && datasourceUrl.startsWith("jdbc:h2:mem:")) {
+            throw new IllegalStateException("transaction-id.node-id es obligatorio con una base en memoria ("
+                    + datasourceUrl + "): el arriendo de nodos no coordina instancias que no comparten la base");
+        }
+
+        String instanceId = applicationName + ":" + UUID.randomUUID();
+        leases = new TransactionNodeLeases(jdbcTemplate, instanceId, leaseTtl);
+
+        long leaseStart = System.currentTimeMillis();
+        int nodeId;
+        if (configuredNodeId >= 0) {
+            if (!leases.tryClaim(configuredNodeId)) {
+                throw new IllegalStateException(
+                        "El nodo de IDs de transacción " + configuredNodeId + " ya está arrendado por otra instancia");
+            }
+            nodeId = configuredNodeId;
+            log.info("🆔 Nodo de IDs de transacción configurado manualmente: {}", nodeId);
+        } else {
+            nodeId = leases.claimFirstFree(Math.floorMod(instanceId.hashCode(), TransactionIdGenerator.MAX_NODE_ID + 1));
+            log.info("🆔 Nodo de IDs de transacción arrendado: {} (instancia {})", nodeId, instanceId);
+        }
+
+        generator = new TransactionIdGenerator(nodeId);
+        generator.setLeaseExpiry(leaseStart + leaseTtl.toMillis());
+        return generator;
+    }
+
+    /**
+     * Renueva el arriendo del nodo; si se perdió, reclama otro
+     */
+    @Scheduled(fixedDelayString = "${transaction-id.lease-renew-interval:20000}",
+            initialDelayString = "${transaction-id.lease-renew-interval:20000}")
+    public void renewNodeLease() {
+        if (generator == null) {
+            return;
+        }
+
+        int current = generator.getNodeId();
+        // El vencimiento se cuenta desde antes de la sentencia: la fila nunca vence antes
+        long leaseStart = System.currentTimeMillis();
+        try {
+            if (leases.renew(current)) {
+                generator.setLeaseExpiry(leaseStart + leaseTtl.toMillis());
+                return;
+            }
+            if (configuredNodeId >= 0) {
+                log.error("❌ Se perdió el arriendo del nodo de IDs de transacción {} configurado manualmente", current);
+                return;
+            }
+            int newNodeId = leases.claimFirstFree(current);
+            generator.setNodeId(newNodeId);
+            generator.setLeaseExpiry(leaseStart + leaseTtl.toMillis());
+            log.warn("⚠️ Se perdió el arriendo del nodo de IDs de transacción {}; se cambia al nodo {}",
+                    current, newNodeId);
+        } catch (Exception e) {
+            log.warn("No se pudo renovar el arriendo del nodo de IDs de transacción {}: {}", current, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void releaseNodeLease() {
+        if (generator == null) {
+            return;
+        }
+        try {
+            leases.release(generator.getNodeId());
+        } catch (Exception e) {
+            log.warn("No se pudo liberar el arriendo del nodo de IDs de transacción: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.orden_pago.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de IDs de transacción estilo Snowflake
+ *
+ * Cada ID es un long positivo: 41 bits de milisegundos desde EPOCH, 10 bits
+ * de nodo y 12 bits de secuencia dentro del milisegundo (4096 IDs/ms por
+ * nodo). El timestamp y la secuencia viven en un único AtomicLong que se
+ * avanza con CAS, así que no hay locks y los IDs de un nodo son
+ * estrictamente crecientes aunque el reloj retroceda: si la secuencia se
+ * agota o el reloj va hacia atrás, se toma prestado el milisegundo siguiente.
+ *
+ * Se codifica como "TXN-" + 13 caracteres Crockford Base32 de ancho fijo,
+ * de modo que el orden lexicográfico coincide con el orden de generación.
+ *
+ * Cuando el nodo está arrendado, el generador deja de emitir IDs pasado el
+ * vencimiento del arriendo (setLeaseExpiry) hasta que una renovación lo
+ * extienda: pasado ese instante otra instancia puede haber tomado el nodo.
+ */
+public class TransactionIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // 2025-01-01T00:00:00Z
+    static final long EPOCH = 1735689600000L;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final AtomicLong lastState = new AtomicLong();
+    private volatile int nodeId;
+    // Epoch millis hasta el que el nodo es propio; sin arriendo no vence
+    private volatile long leaseExpiry = Long.MAX_VALUE;
+
+    public TransactionIdGenerator(int nodeId) {
+        setNodeId(nodeId);
+    }
+
+    /**
+     * Genera un nuevo ID de transacción codificado (ej: TXN-01J5Q3M8Z0K4A)
+     */
+    public String nextTransactionId() {
+        return "TXN-" + encode(nextId());
+    }
+
+    /**
+     * Genera un nuevo ID numérico
+     */
+    public long nextId() {
+        long now = System.currentTimeMillis();
+        if (now > leaseExpiry) {
+            throw new IllegalStateException("El arriendo del nodo de IDs de transacción " + nodeId
+                    + " venció y no se ha podido renovar");
+        }
+        long state = nextState(now - EPOCH);
+        long timestamp = state >>> SEQUENCE_BITS;
+        long sequence = state & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Cambia el nodo (usado si se pierde el arriendo del nodo)
+     */
+    public void setNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId debe estar entre 0 y " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Fija hasta cuándo (epoch millis) el nodo actual es propio
+     */
+    public void setLeaseExpiry(long leaseExpiry) {
+        this.leaseExpiry = leaseExpiry;
+    }
+
+    public long getLeaseExpiry() {
+        return leaseExpiry;
+    }
+
+    /**
+     * Extrae el nodo de un ID numérico
+     */
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    /**
+     * Codifica un ID en Crockford Base32 de ancho fijo
+     */
+    public static String encode(long id) {
+        char[] buffer = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            buffer[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(buffer);
+    }
+
+    private long nextState(long nowMillis) {
+        while (true) {
+            long previous = lastState.get();
+            long candidate = (nowMillis << SEQUENCE_BITS) > previous ? nowMillis << SEQUENCE_BITS : previous + 1;
+            if (lastState.compareAndSet(previous, candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
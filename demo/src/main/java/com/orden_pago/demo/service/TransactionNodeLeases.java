@@ -0,0 +1,80 @@
+package com.orden_pago.demo.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Arriendo de nodos del generador de IDs de transacción en la tabla
+ * node_leases
+ *
+ * Cada reclamo es una sola sentencia atómica en la base de datos: un INSERT
+ * que la clave primaria rechaza si el nodo ya tiene dueño, o un UPDATE
+ * condicionado a que el arriendo anterior esté vencido. Dos instancias que
+ * compiten por el mismo nodo nunca obtienen ambas una fila afectada. El
+ * dueño renueva el vencimiento periódicamente y lo borra al apagarse.
+ */
+public class TransactionNodeLeases {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId;
+    private final Duration ttl;
+
+    public TransactionNodeLeases(JdbcTemplate jdbcTemplate, String instanceId, Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.instanceId = instanceId;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Reclama el primer nodo libre o vencido a partir de start
+     */
+    public int claimFirstFree(int start) {
+        for (int i = 0; i <= TransactionIdGenerator.MAX_NODE_ID; i++) {
+            int candidate = (start + i) & TransactionIdGenerator.MAX_NODE_ID;
+            if (tryClaim(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No hay nodos de IDs de transacción libres");
+    }
+
+    /**
+     * Intenta reclamar un nodo concreto; false si otra instancia tiene un
+     * arriendo vigente
+     */
+    public boolean tryClaim(int nodeId) {
+        Instant now = Instant.now();
+        Timestamp expiresAt = Timestamp.from(now.plus(ttl));
+        try {
+            jdbcTemplate.update("INSERT INTO node_leases (node_id, instance_id, expires_at) VALUES (?, ?, ?)",
+                    nodeId, instanceId, expiresAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update(
+                    "UPDATE node_leases SET instance_id = ?, expires_at = ? WHERE node_id = ? AND expires_at < ?",
+                    instanceId, expiresAt, nodeId, Timestamp.from(now)) == 1;
+        }
+    }
+
+    /**
+     * Extiende el arriendo; false si ya no pertenece a esta instancia
+     * (venció y otra instancia lo tomó)
+     */
+    public boolean renew(int nodeId) {
+        return jdbcTemplate.update(
+                "UPDATE node_leases SET expires_at = ? WHERE node_id = ? AND instance_id = ?",
+                Timestamp.from(Instant.now().plus(ttl)), nodeId, instanceId) == 1;
+    }
+
+    public void release(int nodeId) {
+        jdbcTemplate.update("DELETE FROM node_leases WHERE node_id = ? AND instance_id = ?", nodeId, instanceId);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+}
@@ -0,0 +1,90 @@
+package com.orden_pago.demo.service.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avance del consumidor del catálogo sobre las particiones asignadas
+ *
+ * Al recibir particiones del topic de respuestas del marketplace se toma su
+ * offset final y la posición del consumidor: los registros entre ambos son
+ * el atraso. Cada registro procesado (confirmado por su carril) descuenta
+ * uno, así que el catálogo está al día cuando hay particiones asignadas y a
+ * ninguna le quedan registros de ese atraso. Lo usa el calentamiento de
+ * arranque para no aceptar tráfico con el catálogo a medio cargar.
+ */
+@Component
+@Slf4j
+public class CatalogCatchUpTracker implements KafkaBindingRebalanceListener {
+
+    static final String BINDING = "serviceResponse-in-0";
+
+    // Offset final de cada partición al asignarse y registros de atraso que faltan procesar
+    private final Map<TopicPartition, Long> endOffsets = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, AtomicLong> remaining = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPartitionsAssigned(String bindingName, Consumer<?, ?> consumer,
+            Collection<TopicPartition> partitions, boolean initial) {
+        if (!BINDING.equals(bindingName) || partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, Long> ends = consumer.endOffsets(partitions);
+        long lag = 0;
+        for (TopicPartition partition : partitions) {
+            long end = ends.getOrDefault(partition, 0L);
+            long behind = Math.max(0L, end - consumer.position(partition));
+            endOffsets.put(partition, end);
+            remaining.put(partition, new AtomicLong(behind));
+            lag += behind;
+        }
+        log.info("📥 Particiones del catálogo asignadas: {} ({} registros de atraso)", partitions.size(), lag);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(String bindingName, Consumer<?, ?> consumer,
+            Collection<TopicPartition> partitions) {
+        if (!BINDING.equals(bindingName)) {
+            return;
+        }
+        partitions.forEach(partition -> {
+            endOffsets.remove(partition);
+            remaining.remove(partition);
+        });
+    }
+
+    /**
+     * Registra un registro del topic del catálogo ya procesado
+     */
+    public void recordProcessed(String topic, int partition, long offset) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        Long end = endOffsets.get(topicPartition);
+        AtomicLong behind = remaining.get(topicPartition);
+        if (end != null && behind != null && offset < end) {
+            behind.decrementAndGet();
+        }
+    }
+
+    /**
+     * Indica si el consumidor tiene particiones asignadas y ya procesó los
+     * registros que había en ellas al asignarse
+     */
+    public boolean isCaughtUp() {
+        return !remaining.isEmpty() && getLag() == 0;
+    }
+
+    /**
+     * Registros que había al asignarse las particiones y aún no se procesaron
+     */
+    public long getLag() {
+        return remaining.values().stream().mapToLong(behind -> Math.max(0L, behind.get())).sum();
+    }
+}
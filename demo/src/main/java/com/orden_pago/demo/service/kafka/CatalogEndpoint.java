@@ -0,0 +1,88 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.service.CacheInvalidationBus;
+import com.orden_pago.demo.service.CartETagCache;
+import com.orden_pago.demo.service.CatalogFacetIndex;
+import com.orden_pago.demo.service.CatalogResponseCache;
+import com.orden_pago.demo.service.CatalogSearchIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator con el estado del catálogo en memoria y de las
+ * cachés locales
+ *
+ * GET /actuator/catalog: tamaño, versión, último evento ingerido, memoria
+ * estimada y contadores de las cachés. Todo sale de contadores ya mantenidos
+ * por la ingesta; no recorre el catálogo ni consulta la base de datos.
+ */
+@Component
+@Endpoint(id = "catalog")
+public class CatalogEndpoint {
+
+    private final CatalogResponseCache catalogResponseCache;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final CartETagCache cartETagCache;
+    private final ServiceEventFilter serviceEventFilter;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${catalog.memory.max-bytes:64MB}")
+    private DataSize maxCatalogSize;
+
+    public CatalogEndpoint(CatalogResponseCache catalogResponseCache, CatalogSearchIndex catalogSearchIndex,
+            CatalogFacetIndex catalogFacetIndex, CartETagCache cartETagCache, ServiceEventFilter serviceEventFilter,
+            CacheInvalidationBus cacheInvalidationBus) {
+        this.catalogResponseCache = catalogResponseCache;
+        this.catalogSearchIndex = catalogSearchIndex;
+        this.catalogFacetIndex = catalogFacetIndex;
+        this.cartETagCache = cartETagCache;
+        this.serviceEventFilter = serviceEventFilter;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("services", ServiceKafkaConsumer.getAvailableServicesCount());
+        status.put("version", ServiceKafkaConsumer.getCatalogVersion());
+        status.put("etag", ServiceKafkaConsumer.getCatalogETag());
+
+        Instant lastIngestedAt = ServiceKafkaConsumer.getLastIngestedAt();
+        Instant lastEventTimestamp = ServiceKafkaConsumer.getLastAppliedEventTimestamp();
+        status.put("lastIngestedAt", lastIngestedAt != null ? lastIngestedAt.toString() : null);
+        status.put("secondsSinceLastIngest", lastIngestedAt != null
+                ? Duration.between(lastIngestedAt, Instant.now()).toSeconds()
+                : null);
+        status.put("lastEventTimestamp", lastEventTimestamp != null ? lastEventTimestamp.toString() : null);
+        status.put("skippedEvents", serviceEventFilter.getSkippedCount());
+        status.put("staleServices", ServiceKafkaConsumer.getStaleServicesCount());
+
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("weightBytes", ServiceKafkaConsumer.getCatalogWeight());
+        memory.put("offHeapBytes", ServiceKafkaConsumer.getCatalogOffHeapBytes());
+        memory.put("maxBytes", maxCatalogSize.toBytes());
+        memory.put("evictions", ServiceKafkaConsumer.getEvictionCount());
+        memory.put("evictedServices", ServiceKafkaConsumer.getEvictedServicesCount());
+        status.put("memory", memory);
+
+        Map<String, Object> caches = new LinkedHashMap<>();
+        caches.put("renderedResponses", catalogResponseCache.size());
+        caches.put("searchIndexEntries", catalogSearchIndex.size());
+        caches.put("facetIndexEntries", catalogFacetIndex.size());
+        caches.put("cartETags", cartETagCache.size());
+        caches.put("invalidationsPublished", cacheInvalidationBus.getPublishedCount());
+        caches.put("invalidationsReceived", cacheInvalidationBus.getReceivedCount());
+        caches.put("maxInvalidationLagMillis", cacheInvalidationBus.getMaxDeliveryLagMillis());
+        status.put("caches", caches);
+        return status;
+    }
+}
@@ -0,0 +1,684 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Almacén compacto del catálogo fuera del heap
+ *
+ * Cada servicio se codifica en un registro binario (longitudes variables,
+ * sin los campos de correlación requestId/errorMessage) que se agrega al
+ * final de segmentos ByteBuffer directos. Un índice primitivo en el heap
+ * (arrays de long con direccionamiento abierto) guarda por serviceId la
+ * ubicación del registro y su último acceso. Categoría, país, estado y tipo
+ * de evento se internan en un diccionario y el registro guarda solo su
+ * número. El DTO se decodifica recién al leerlo.
+ *
+ * Los bytes ya escritos nunca se modifican: una actualización agrega un
+ * registro nuevo y deja el anterior como espacio muerto. Cuando el espacio
+ * muerto supera al vivo, la compactación copia los registros vivos (en el
+ * mismo orden) a segmentos nuevos y los viejos los libera el GC cuando ya no
+ * los lee nadie. Por eso el orden de los registros es el orden de la última
+ * escritura de cada servicio, igual que la lista del catálogo.
+ */
+public class CompactCatalogStore {
+
+    // Bytes del índice por servicio: 4 longs por slot con factor de carga ~0.6
+    static final int INDEX_BYTES_PER_ENTRY = 56;
+
+    private static final long EMPTY = -1L;
+    private static final long DELETED = -2L;
+    private static final double MAX_LOAD = 0.6;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Máscara de campos presentes en el registro
+    private static final int RAW_SERVICE_ID = 1; // serviceId distinto del UUID de la clave
+    private static final int HAS_ID = 1 << 1;
+    private static final int HAS_PRICE = 1 << 2;
+    private static final int HAS_RATING = 1 << 3;
+    private static final int HAS_CATEGORY_ID = 1 << 4;
+    private static final int HAS_STATUS_ID = 1 << 5;
+    private static final int HAS_COUNTRY_ID = 1 << 6;
+    private static final int HAS_ACTIVE = 1 << 7;
+    private static final int ACTIVE = 1 << 8;
+
+    private final int segmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Segmentos fuera del heap y posición de escritura en el último
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private int writeOffset;
+
+    // Índice serviceId -> ubicación (segmento << 32 | offset) y último acceso (System.nanoTime)
+    private long[] keysMsb;
+    private long[] keysLsb;
+    private long[] locations;
+    private long[] lastAccess;
+    private int size;
+    private int tombstones;
+
+    private long liveBytes;
+    private long deadBytes;
+
+    // Strings internados: se agregan y nunca se quitan (baja cardinalidad)
+    private final Map<String, Integer> dictionaryIds = new HashMap<>();
+    private String[] dictionary = new String[64];
+    private int dictionarySize;
+
+    private final RecordWriter writer = new RecordWriter();
+
+    public CompactCatalogStore(int segmentSize) {
+        this.segmentSize = segmentSize;
+        allocateIndex(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Guarda (o reemplaza) un servicio; una actualización conserva su último acceso
+     */
+    public void put(ServiceResponseDTO service) {
+        UUID key = service.getServiceId();
+        if (key == null) {
+            throw new IllegalArgumentException("Servicio sin serviceId");
+        }
+        lock.writeLock().lock();
+        try {
+            encode(service, key);
+            long location = append(writer.buffer, writer.length);
+            int slot = findSlot(key);
+            if (slot >= 0) {
+                markDead(locations[slot]);
+                locations[slot] = location;
+            } else {
+                insert(key, location, System.nanoTime());
+            }
+            liveBytes += writer.length;
+            compactIfWasteful();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un servicio; false si no estaba
+     */
+    public boolean remove(UUID key) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key);
+            if (slot < 0) {
+                return false;
+            }
+            markDead(locations[slot]);
+            locations[slot] = DELETED;
+            size--;
+            tombstones++;
+            compactIfWasteful();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Decodifica un servicio y lo marca como recién usado (null si no está)
+     */
+    public ServiceResponseDTO get(UUID key) {
+        return read(key, true);
+    }
+
+    /**
+     * Decodifica un servicio sin contarlo como acceso (null si no está)
+     */
+    public ServiceResponseDTO peek(UUID key) {
+        return read(key, false);
+    }
+
+    public boolean contains(UUID key) {
+        lock.readLock().lock();
+        try {
+            return findSlot(key) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Decodifica todos los servicios en el orden de su última escritura
+     * Los registros se ubican bajo el lock y se decodifican fuera de él
+     */
+    public List<ServiceResponseDTO> getAll() {
+        ByteBuffer[] segmentsSnapshot;
+        String[] dictionarySnapshot;
+        int[] order;
+        long[] msb;
+        long[] lsb;
+        long[] locationSnapshot;
+
+        lock.readLock().lock();
+        try {
+            order = occupiedSlotsBy(locations);
+            msb = new long[order.length];
+            lsb = new long[order.length];
+            locationSnapshot = new long[order.length];
+            for (int i = 0; i < order.length; i++) {
+                msb[i] = keysMsb[order[i]];
+                lsb[i] = keysLsb[order[i]];
+                locationSnapshot[i] = locations[order[i]];
+            }
+            segmentsSnapshot = segments;
+            dictionarySnapshot = dictionary;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ServiceResponseDTO> services = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length; i++) {
+            services.add(decode(segmentsSnapshot, dictionarySnapshot, locationSnapshot[i], new UUID(msb[i], lsb[i])));
+        }
+        return services;
+    }
+
+    /**
+     * Servicios consultados hace más tiempo cuyo peso suma al menos los bytes
+     * pedidos
+     */
+    public List<UUID> coldest(long bytesToFree) {
+        lock.readLock().lock();
+        try {
+            // Copia: los lectores siguen actualizando los accesos mientras se ordena
+            int[] order = occupiedSlotsBy(lastAccess.clone());
+            List<UUID> coldest = new ArrayList<>();
+            long freed = 0;
+            for (int slot : order) {
+                if (freed >= bytesToFree) {
+                    break;
+                }
+                coldest.add(new UUID(keysMsb[slot], keysLsb[slot]));
+                freed += recordLength(segments, locations[slot]) + INDEX_BYTES_PER_ENTRY;
+            }
+            return coldest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            segments = new ByteBuffer[0];
+            writeOffset = 0;
+            allocateIndex(INITIAL_CAPACITY);
+            size = 0;
+            tombstones = 0;
+            liveBytes = 0;
+            deadBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Peso del catálogo: registros vivos más su parte del índice
+     */
+    public long getWeight() {
+        lock.readLock().lock();
+        try {
+            return liveBytes + (long) size * INDEX_BYTES_PER_ENTRY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes reservados fuera del heap (incluye espacio muerto y libre de los segmentos)
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (ByteBuffer segment : segments) {
+                total += segment.capacity();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDictionarySize() {
+        lock.readLock().lock();
+        try {
+            return dictionarySize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ServiceResponseDTO read(UUID key, boolean touch) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(key);
+            if (slot < 0) {
+                return null;
+            }
+            if (touch) {
+                // Carrera benigna entre lectores: gana cualquiera de los instantes
+                lastAccess[slot] = System.nanoTime();
+            }
+            return decode(segments, dictionary, locations[slot], key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- Segmentos ----
+
+    private long append(byte[] record, int length) {
+        int last = segments.length - 1;
+        if (last < 0 || writeOffset + length > segments[last].capacity()) {
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            last = segments.length - 1;
+            segments[last] = ByteBuffer.allocateDirect(Math.max(segmentSize, length));
+            writeOffset = 0;
+        }
+        segments[last].put(writeOffset, record, 0, length);
+        long location = ((long) last << 32) | writeOffset;
+        writeOffset += length;
+        return location;
+    }
+
+    private void markDead(long location) {
+        int length = recordLength(segments, location);
+        liveBytes -= length;
+        deadBytes += length;
+    }
+
+    private static int recordLength(ByteBuffer[] segments, long location) {
+        return segments[(int) (location >>> 32)].getInt((int) location);
+    }
+
+    /**
+     * Copia los registros vivos a segmentos nuevos cuando el espacio muerto
+     * supera al vivo (y al menos un segmento completo)
+     */
+    private void compactIfWasteful() {
+        if (deadBytes <= liveBytes || deadBytes < segmentSize) {
+            return;
+        }
+        ByteBuffer[] previous = segments;
+        int[] order = occupiedSlotsBy(locations.clone());
+        segments = new ByteBuffer[0];
+        writeOffset = 0;
+        byte[] copy = new byte[256];
+        for (int slot : order) {
+            long location = locations[slot];
+            int length = recordLength(previous, location);
+            if (copy.length < length) {
+                copy = new byte[Math.max(length, copy.length * 2)];
+            }
+            previous[(int) (location >>> 32)].get((int) location, copy, 0, length);
+            locations[slot] = append(copy, length);
+        }
+        deadBytes = 0;
+    }
+
+    // ---- Índice primitivo ----
+
+    private void allocateIndex(int capacity) {
+        keysMsb = new long[capacity];
+        keysLsb = new long[capacity];
+        locations = new long[capacity];
+        lastAccess = new long[capacity];
+        Arrays.fill(locations, EMPTY);
+    }
+
+    private int findSlot(UUID key) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int mask = locations.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            long location = locations[slot];
+            if (location == EMPTY) {
+                return -1;
+            }
+            if (location != DELETED && keysMsb[slot] == msb && keysLsb[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserta una clave que no está en el índice
+     */
+    private void insert(UUID key, long location, long accessedAt) {
+        if (size + tombstones + 1 > locations.length * MAX_LOAD) {
+            // Si sobran tombstones basta con rehacer el índice del mismo tamaño
+            rehash(size + 1 > locations.length * MAX_LOAD / 2 ? locations.length * 2 : locations.length);
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int mask = locations.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (locations[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (locations[slot] == DELETED) {
+            tombstones--;
+        }
+        keysMsb[slot] = msb;
+        keysLsb[slot] = lsb;
+        locations[slot] = location;
+        lastAccess[slot] = accessedAt;
+        size++;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMsb = keysMsb;
+        long[] oldLsb = keysLsb;
+        long[] oldLocations = locations;
+        long[] oldAccess = lastAccess;
+        allocateIndex(capacity);
+        size = 0;
+        tombstones = 0;
+        for (int slot = 0; slot < oldLocations.length; slot++) {
+            if (oldLocations[slot] >= 0) {
+                insert(new UUID(oldMsb[slot], oldLsb[slot]), oldLocations[slot], oldAccess[slot]);
+            }
+        }
+    }
+
+    /**
+     * Slots ocupados ordenados por el valor de cada slot (ubicación o último acceso)
+     */
+    private int[] occupiedSlotsBy(long[] values) {
+        return IntStream.range(0, locations.length)
+                .filter(slot -> locations[slot] >= 0)
+                .boxed()
+                .sorted(Comparator.comparingLong(slot -> values[slot]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // ---- Codificación ----
+
+    private void encode(ServiceResponseDTO service, UUID key) {
+        String rawServiceId = service.getServiceIdAsString();
+        boolean rawId = rawServiceId != null && !rawServiceId.equals(key.toString());
+
+        int mask = (rawId ? RAW_SERVICE_ID : 0)
+                | (service.getId() != null ? HAS_ID : 0)
+                | (service.getPrice() != null ? HAS_PRICE : 0)
+                | (service.getAverageRating() != null ? HAS_RATING : 0)
+                | (service.getCategoryId() != null ? HAS_CATEGORY_ID : 0)
+                | (service.getStatusId() != null ? HAS_STATUS_ID : 0)
+                | (service.getCountryId() != null ? HAS_COUNTRY_ID : 0)
+                | (service.getIsActive() != null ? HAS_ACTIVE : 0)
+                | (Boolean.TRUE.equals(service.getIsActive()) ? ACTIVE : 0);
+
+        writer.reset();
+        writer.writeInt(0); // longitud del registro, se completa al final
+        writer.writeVarInt(mask);
+        if (rawId) {
+            writer.writeString(rawServiceId);
+        }
+        if (service.getId() != null) {
+            writer.writeUuid(service.getId());
+        }
+        writer.writeString(service.getTitle());
+        writer.writeString(service.getDescription());
+        if (service.getPrice() != null) {
+            writer.writeVarInt(service.getPrice().scale());
+            writer.writeBytes(service.getPrice().unscaledValue().toByteArray());
+        }
+        if (service.getAverageRating() != null) {
+            writer.writeLong(Double.doubleToLongBits(service.getAverageRating()));
+        }
+        writer.writeVarInt(intern(service.getEventType()));
+        writer.writeString(service.getTimestamp());
+        writer.writeString(service.getUserId());
+        if (service.getCategoryId() != null) {
+            writer.writeUuid(service.getCategoryId());
+        }
+        writer.writeVarInt(intern(service.getCategoryName()));
+        if (service.getStatusId() != null) {
+            writer.writeUuid(service.getStatusId());
+        }
+        writer.writeVarInt(intern(service.getStatusName()));
+        if (service.getCountryId() != null) {
+            writer.writeUuid(service.getCountryId());
+        }
+        writer.writeVarInt(intern(service.getCountryName()));
+        writer.writeVarInt(intern(service.getCountryCode()));
+        writer.writeString(service.getPrimaryImageUrl());
+        writer.patchLength();
+    }
+
+    private static ServiceResponseDTO decode(ByteBuffer[] segments, String[] dictionary, long location, UUID key) {
+        ByteBuffer segment = segments[(int) (location >>> 32)];
+        int offset = (int) location;
+        byte[] record = new byte[segment.getInt(offset)];
+        segment.get(offset, record, 0, record.length);
+
+        RecordReader reader = new RecordReader(record, Integer.BYTES);
+        int mask = reader.readVarInt();
+        ServiceResponseDTO.ServiceResponseDTOBuilder builder = ServiceResponseDTO.builder()
+                .serviceId((mask & RAW_SERVICE_ID) != 0 ? reader.readString() : key.toString());
+        if ((mask & HAS_ID) != 0) {
+            builder.id(reader.readUuid());
+        }
+        builder.title(reader.readString())
+                .description(reader.readString());
+        if ((mask & HAS_PRICE) != 0) {
+            int scale = reader.readVarInt();
+            builder.price(new BigDecimal(new BigInteger(reader.readBytes()), scale));
+        }
+        if ((mask & HAS_RATING) != 0) {
+            builder.averageRating(Double.longBitsToDouble(reader.readLong()));
+        }
+        builder.eventType(lookup(dictionary, reader.readVarInt()))
+                .timestamp(reader.readString())
+                .userId(reader.readString());
+        if ((mask & HAS_CATEGORY_ID) != 0) {
+            builder.categoryId(reader.readUuid());
+        }
+        builder.categoryName(lookup(dictionary, reader.readVarInt()));
+        if ((mask & HAS_STATUS_ID) != 0) {
+            builder.statusId(reader.readUuid());
+        }
+        builder.statusName(lookup(dictionary, reader.readVarInt()));
+        if ((mask & HAS_COUNTRY_ID) != 0) {
+            builder.countryId(reader.readUuid());
+        }
+        builder.countryName(lookup(dictionary, reader.readVarInt()))
+                .countryCode(lookup(dictionary, reader.readVarInt()))
+                .primaryImageUrl(reader.readString());
+        if ((mask & HAS_ACTIVE) != 0) {
+            builder.isActive((mask & ACTIVE) != 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Número del string en el diccionario más uno (0 = null)
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = dictionaryIds.get(value);
+        if (id == null) {
+            if (dictionarySize == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+            }
+            id = dictionarySize;
+            dictionary[dictionarySize++] = value;
+            dictionaryIds.put(value, id);
+        }
+        return id + 1;
+    }
+
+    private static String lookup(String[] dictionary, int id) {
+        return id == 0 ? null : dictionary[id - 1];
+    }
+
+    /**
+     * Buffer en el heap donde se arma cada registro antes de copiarlo al segmento
+     * (solo lo usa quien tiene el lock de escritura)
+     */
+    private static final class RecordWriter {
+        private byte[] buffer = new byte[1024];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeInt(int value) {
+            ensure(Integer.BYTES);
+            buffer[length++] = (byte) (value >>> 24);
+            buffer[length++] = (byte) (value >>> 16);
+            buffer[length++] = (byte) (value >>> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeUuid(UUID value) {
+            writeLong(value.getMostSignificantBits());
+            writeLong(value.getLeastSignificantBits());
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        /**
+         * Longitud UTF-8 más uno (0 = null) y los bytes
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void patchLength() {
+            int total = length;
+            length = 0;
+            writeInt(total);
+            length = total;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+
+    private static final class RecordReader {
+        private final byte[] record;
+        private int position;
+
+        RecordReader(byte[] record, int position) {
+            this.record = record;
+            this.position = position;
+        }
+
+        int readInt() {
+            return ((record[position++] & 0xFF) << 24)
+                    | ((record[position++] & 0xFF) << 16)
+                    | ((record[position++] & 0xFF) << 8)
+                    | (record[position++] & 0xFF);
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        UUID readUuid() {
+            return new UUID(readLong(), readLong());
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = record[position++];
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarInt();
+            byte[] bytes = Arrays.copyOfRange(record, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(record, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.orden_pago.demo.service.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Endpoint de actuator para el dead-letter topic de eventos del marketplace
+ *
+ * GET /actuator/dlt muestra los contadores de reintentos; POST
+ * /actuator/dlt reinyecta los eventos del DLT (desde el último offset
+ * confirmado por este grupo) en el primer topic de reintentos; los que
+ * vuelven a fallar regresan directo al DLT.
+ */
+@Component
+@Endpoint(id = "dlt")
+@Slf4j
+public class DeadLetterEndpoint {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+    private static final int DEFAULT_MAX_MESSAGES = 500;
+
+    private final FailedEventRouter failedEventRouter;
+
+    @Value("${spring.cloud.stream.kafka.binder.brokers}")
+    private String brokers;
+
+    @Value("${kafka.topics.service-response-dlt}")
+    private String deadLetterTopic;
+
+    @Value("${spring.application.name}-dlt-replay")
+    private String replayGroup;
+
+    public DeadLetterEndpoint(FailedEventRouter failedEventRouter) {
+        this.failedEventRouter = failedEventRouter;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("deadLetterTopic", deadLetterTopic);
+        status.put("maxAttempts", failedEventRouter.getMaxAttempts());
+        status.put("retried", failedEventRouter.getRetriedCount());
+        status.put("deadLettered", failedEventRouter.getDeadLetteredCount());
+        status.put("replayed", failedEventRouter.getReplayedCount());
+        status.put("replayFailed", failedEventRouter.getReplayFailedCount());
+        return status;
+    }
+
+    /**
+     * Reinyecta hasta maxMessages eventos del DLT como reintentos inmediatos
+     */
+    @WriteOperation
+    public Map<String, Object> replay(@Nullable Integer maxMessages) {
+        int limit = maxMessages != null && maxMessages > 0 ? maxMessages : DEFAULT_MAX_MESSAGES;
+        int replayed = 0;
+
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProperties(limit))) {
+            consumer.subscribe(List.of(deadLetterTopic));
+            Map<TopicPartition, OffsetAndMetadata> processed = new HashMap<>();
+            int emptyPolls = 0;
+
+            while (replayed < limit && emptyPolls < 2) {
+                ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                for (ConsumerRecord<String, String> record : records) {
+                    if (replayed >= limit) {
+                        break;
+                    }
+                    failedEventRouter.replay(record.value(), record.key(), firstFailedAt(record));
+                    processed.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+            }
+
+            if (!processed.isEmpty()) {
+                consumer.commitSync(processed);
+            }
+        }
+
+        log.info("♻️ {} eventos reinyectados desde el dead-letter topic {}", replayed, deadLetterTopic);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replayed", replayed);
+        result.put("deadLetterTopic", deadLetterTopic);
+        return result;
+    }
+
+    /**
+     * Momento del primer fallo guardado en el DLT (0 si el registro no lo trae)
+     */
+    private static long firstFailedAt(ConsumerRecord<String, String> record) {
+        Header header = record.headers().lastHeader(FailedEventRouter.FIRST_FAILED_AT_HEADER);
+        if (header == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(FailedEventRouter.headerAsString(header.value()).trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private Properties consumerProperties(int limit) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroup);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(limit, 500));
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        return properties;
+    }
+}
@@ -0,0 +1,258 @@
+package com.orden_pago.demo.service.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reintentos no bloqueantes para eventos del marketplace que fallan al
+ * procesarse
+ *
+ * Un evento que falla se publica en el topic del escalón de backoff que le
+ * toca (1s, 4s y 16s, ver RetryTier) con el número de intento y el momento en
+ * que vence, y el original se confirma para que la partición principal siga
+ * avanzando. Cada escalón tiene un retraso fijo, así que en cada partición de
+ * su topic los mensajes vencen en el orden en que llegan: el consumidor del
+ * escalón espera al vencimiento del primero sin retener a ninguno que venza
+ * antes, y sin guardar mensajes en memoria. Tras el último escalón el evento
+ * va al topic de dead-letter con el error en las cabeceras.
+ *
+ * Un evento reinyectado desde el dead-letter topic lleva la cabecera
+ * x-replayed: se procesa una vez más y, si vuelve a fallar, regresa directo
+ * al dead-letter topic sin recorrer otra vez los escalones.
+ *
+ * Todos llevan el momento del primer fallo (x-first-failed-at): si para
+ * cuando se reintenta ya se aplicó otro evento del mismo servicio después de
+ * ese momento, el reintento es más viejo y se descarta (ver
+ * ServiceEventFilter.isSupersededRetry).
+ */
+@Component
+@Slf4j
+public class FailedEventRouter {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String DUE_AT_HEADER = "x-retry-due-at";
+    public static final String EXCEPTION_CLASS_HEADER = "x-exception-class";
+    public static final String EXCEPTION_MESSAGE_HEADER = "x-exception-message";
+    public static final String EXCEPTION_STACKTRACE_HEADER = "x-exception-stacktrace";
+    public static final String FAILED_AT_HEADER = "x-failed-at";
+    public static final String REPLAYED_HEADER = "x-replayed";
+    public static final String FIRST_FAILED_AT_HEADER = "x-first-failed-at";
+
+    static final String DLT_BINDING = "serviceResponseDlt-out-0";
+
+    private static final int MAX_STACKTRACE_LENGTH = 4000;
+
+    /**
+     * Escalones de backoff: un topic de reintentos con retraso fijo por cada
+     * uno (bindings {function}-in-0 y {function}-out-0)
+     */
+    public enum RetryTier {
+        RETRY_1S("serviceResponseRetry1s", Duration.ofSeconds(1)),
+        RETRY_4S("serviceResponseRetry4s", Duration.ofSeconds(4)),
+        RETRY_16S("serviceResponseRetry16s", Duration.ofSeconds(16));
+
+        private final String function;
+        private final Duration delay;
+
+        RetryTier(String function, Duration delay) {
+            this.function = function;
+            this.delay = delay;
+        }
+
+        /**
+         * Número de reintento que atiende el escalón (1 = primer reintento)
+         */
+        public int attempt() {
+            return ordinal() + 1;
+        }
+
+        public Duration delay() {
+            return delay;
+        }
+
+        /**
+         * Nombre del bean funcional que consume el topic del escalón
+         */
+        public String function() {
+            return function;
+        }
+
+        String outputBinding() {
+            return function + "-out-0";
+        }
+
+        /**
+         * Escalón del reintento indicado, o null si ya no quedan
+         */
+        static RetryTier forAttempt(int attempt) {
+            RetryTier[] tiers = values();
+            return attempt >= 1 && attempt <= tiers.length ? tiers[attempt - 1] : null;
+        }
+    }
+
+    private final StreamBridge streamBridge;
+
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong replayFailed = new AtomicLong();
+
+    public FailedEventRouter(StreamBridge streamBridge) {
+        this.streamBridge = streamBridge;
+    }
+
+    /**
+     * Envía un evento fallido al escalón del siguiente reintento o, si se
+     * agotaron o el evento ya venía reinyectado del DLT, al dead-letter topic
+     *
+     * @param attempt reintentos ya hechos (0 = procesamiento desde el topic principal)
+     * @param replayed si el evento fue reinyectado desde el dead-letter topic
+     * @param firstFailedAt epoch millis del primer fallo (0 si este es el primero)
+     */
+    public void routeFailure(String rawMessage, String key, int attempt, boolean replayed, long firstFailedAt,
+            Exception error) {
+        long firstFailure = firstFailedAt > 0 ? firstFailedAt : System.currentTimeMillis();
+        if (replayed) {
+            replayFailed.incrementAndGet();
+            log.warn("♻️ El evento reinyectado del servicio {} volvió a fallar", key);
+            sendToDeadLetter(rawMessage, key, attempt, true, firstFailure, error);
+            return;
+        }
+        RetryTier tier = RetryTier.forAttempt(attempt + 1);
+        if (tier == null) {
+            sendToDeadLetter(rawMessage, key, attempt, false, firstFailure, error);
+            return;
+        }
+
+        Message<String> retry = MessageBuilder.withPayload(rawMessage)
+                .setHeader(KafkaHeaders.KEY, key)
+                .setHeader(ATTEMPT_HEADER, String.valueOf(tier.attempt()))
+                .setHeader(DUE_AT_HEADER, String.valueOf(System.currentTimeMillis() + tier.delay().toMillis()))
+                .setHeader(FIRST_FAILED_AT_HEADER, String.valueOf(firstFailure))
+                .setHeader(EXCEPTION_CLASS_HEADER, error.getClass().getName())
+                .setHeader(EXCEPTION_MESSAGE_HEADER, String.valueOf(error.getMessage()))
+                .build();
+        send(tier.outputBinding(), retry);
+        retried.incrementAndGet();
+        log.warn("🔁 Evento del servicio {} enviado a reintento {} de {} en {} ms: {}",
+                key, tier.attempt(), RetryTier.values().length, tier.delay().toMillis(), error.getMessage());
+    }
+
+    /**
+     * Envía un evento al dead-letter topic con el error en las cabeceras
+     */
+    public void sendToDeadLetter(String rawMessage, String key, int attempt, boolean replayed, long firstFailedAt,
+            Exception error) {
+        Message<String> deadLetter = MessageBuilder.withPayload(rawMessage)
+                .setHeader(KafkaHeaders.KEY, key)
+                .setHeader(ATTEMPT_HEADER, String.valueOf(attempt))
+                .setHeader(REPLAYED_HEADER, String.valueOf(replayed))
+                .setHeader(FIRST_FAILED_AT_HEADER,
+                        String.valueOf(firstFailedAt > 0 ? firstFailedAt : System.currentTimeMillis()))
+                .setHeader(FAILED_AT_HEADER, Instant.now().toString())
+                .setHeader(EXCEPTION_CLASS_HEADER, error.getClass().getName())
+                .setHeader(EXCEPTION_MESSAGE_HEADER, String.valueOf(error.getMessage()))
+                .setHeader(EXCEPTION_STACKTRACE_HEADER, stackTraceOf(error))
+                .build();
+        send(DLT_BINDING, deadLetter);
+        deadLettered.incrementAndGet();
+        log.error("☠️ Evento del servicio {} enviado al dead-letter topic tras {} reintentos: {}",
+                key, attempt, error.getMessage());
+    }
+
+    /**
+     * Reinyecta un evento del dead-letter topic como un reintento inmediato,
+     * marcado con x-replayed y con los escalones ya agotados
+     *
+     * @param firstFailedAt epoch millis del primer fallo según el DLT (0 si no se conoce)
+     */
+    public void replay(String rawMessage, String key, long firstFailedAt) {
+        Message<String> retry = MessageBuilder.withPayload(rawMessage)
+                .setHeader(KafkaHeaders.KEY, key)
+                .setHeader(ATTEMPT_HEADER, String.valueOf(RetryTier.values().length))
+                .setHeader(REPLAYED_HEADER, "true")
+                .setHeader(FIRST_FAILED_AT_HEADER, String.valueOf(firstFailedAt))
+                .setHeader(DUE_AT_HEADER, String.valueOf(System.currentTimeMillis()))
+                .build();
+        send(RetryTier.RETRY_1S.outputBinding(), retry);
+        replayed.incrementAndGet();
+    }
+
+    /**
+     * Espera, en el hilo del consumidor del escalón, a que venza un reintento
+     * Como mucho espera el retraso del escalón, por si los relojes de las
+     * instancias difieren.
+     */
+    public void awaitDue(RetryTier tier, long dueAtMillis) {
+        long wait = Math.min(dueAtMillis - System.currentTimeMillis(), tier.delay().toMillis());
+        if (wait <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el vencimiento de un reintento", e);
+        }
+    }
+
+    /**
+     * Lee una cabecera de Kafka como texto (puede llegar como String o bytes)
+     */
+    public static String headerAsString(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value.toString();
+    }
+
+    public long getRetriedCount() {
+        return retried.get();
+    }
+
+    public long getDeadLetteredCount() {
+        return deadLettered.get();
+    }
+
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    public long getReplayFailedCount() {
+        return replayFailed.get();
+    }
+
+    /**
+     * Intentos de procesamiento de un evento: el original y uno por escalón
+     */
+    public int getMaxAttempts() {
+        return RetryTier.values().length + 1;
+    }
+
+    private void send(String binding, Message<String> message) {
+        if (!streamBridge.send(binding, message)) {
+            throw new IllegalStateException("No se pudo publicar en " + binding);
+        }
+    }
+
+    private static String stackTraceOf(Exception error) {
+        StringWriter writer = new StringWriter();
+        error.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        return trace.length() > MAX_STACKTRACE_LENGTH ? trace.substring(0, MAX_STACKTRACE_LENGTH) : trace;
+    }
+}
@@ -0,0 +1,76 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.service.CacheInvalidationTransport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Transporte de invalidaciones de caché por un topic compactado de Kafka
+ *
+ * La clave del mensaje es el carrito o servicio invalidado, así la
+ * compactación conserva solo la última invalidación de cada uno. Cada
+ * instancia consume el topic con un grupo propio (anónimo, desde el final)
+ * para recibir todas las invalidaciones.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class KafkaCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    static final String OUT_BINDING = "cacheInvalidation-out-0";
+
+    private final StreamBridge streamBridge;
+    private final ObjectMapper objectMapper;
+
+    private volatile Consumer<CacheInvalidationDTO> receiver;
+
+    @Override
+    public void send(CacheInvalidationDTO invalidation) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(invalidation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializando la invalidación: " + e.getMessage(), e);
+        }
+        Message<String> message = MessageBuilder.withPayload(payload)
+                .setHeader(KafkaHeaders.KEY, invalidation.topicKey())
+                .build();
+        if (!streamBridge.send(OUT_BINDING, message)) {
+            throw new IllegalStateException("No se pudo publicar en " + OUT_BINDING);
+        }
+    }
+
+    @Override
+    public void connect(Consumer<CacheInvalidationDTO> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Consumidor del topic de invalidaciones (solo entrega si el bus usa Kafka)
+     */
+    @Bean
+    public Consumer<Message<String>> cacheInvalidation() {
+        return message -> {
+            Consumer<CacheInvalidationDTO> target = receiver;
+            if (target == null) {
+                return;
+            }
+            try {
+                target.accept(objectMapper.readValue(message.getPayload(), CacheInvalidationDTO.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Invalidación de caché ilegible descartada: {}", e.getMessage());
+            }
+        };
+    }
+}
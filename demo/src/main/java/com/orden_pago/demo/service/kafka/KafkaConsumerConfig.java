@@ -0,0 +1,47 @@
+package com.orden_pago.demo.service.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.List;
+
+/**
+ * Configuración de los contenedores de consumo Kafka
+ *
+ * Los eventos del marketplace se procesan fuera del hilo del consumidor (en
+ * OrderedLaneExecutor) y se confirman desde el carril cuando terminan. Con
+ * acks asíncronos el contenedor acepta esas confirmaciones fuera de orden y
+ * solo hace commit de un offset cuando todos los registros anteriores de la
+ * partición ya fueron confirmados. Lo mismo aplica a los topics de
+ * reintentos (uno por escalón de backoff), cuyos mensajes también se
+ * procesan en los carriles.
+ */
+@Configuration
+@Slf4j
+public class KafkaConsumerConfig {
+
+    @Value("${kafka.topics.service-response}")
+    private String serviceResponseTopic;
+
+    @Value("${kafka.topics.service-response-retry-tiers}")
+    private List<String> serviceResponseRetryTopics;
+
+    @Bean
+    public ListenerContainerCustomizer<AbstractMessageListenerContainer<?, ?>> orderedLaneContainerCustomizer() {
+        return (container, destinationName, group) -> {
+            if (!serviceResponseTopic.equals(destinationName) && !serviceResponseRetryTopics.contains(destinationName)) {
+                return;
+            }
+            ContainerProperties properties = container.getContainerProperties();
+            properties.setAckMode(ContainerProperties.AckMode.MANUAL);
+            properties.setAsyncAcks(true);
+            log.info("Consumidor de {} con acks asíncronos: commit solo de offsets contiguos confirmados",
+                    destinationName);
+        };
+    }
+}
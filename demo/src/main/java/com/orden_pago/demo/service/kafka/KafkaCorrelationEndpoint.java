@@ -0,0 +1,35 @@
+package com.orden_pago.demo.service.kafka;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator para la correlación request/response con el
+ * marketplace
+ *
+ * GET /actuator/kafka-correlation (path-mapping del id kafkacorrelation):
+ * solicitudes esperando respuesta en KafkaMessagingService y cuántas
+ * vencieron sin respuesta desde el arranque.
+ */
+@Component
+@Endpoint(id = "kafkacorrelation")
+public class KafkaCorrelationEndpoint {
+
+    private final KafkaMessagingService kafkaMessagingService;
+
+    public KafkaCorrelationEndpoint(KafkaMessagingService kafkaMessagingService) {
+        this.kafkaMessagingService = kafkaMessagingService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("pendingRequests", kafkaMessagingService.getPendingRequestCount());
+        status.put("timeouts", kafkaMessagingService.getTimeoutCount());
+        return status;
+    }
+}
@@ -1,5 +1,6 @@
 package com.orden_pago.demo.service.kafka;
 
+import com.orden_pago.demo.dto.ServiceRequestDTO;
 import com.orden_pago.demo.dto.ServiceResponseDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,8 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Servicio para manejar mensajería Kafka
@@ -24,13 +27,15 @@ public class KafkaMessagingService {
 
     // Mapa para correlacionar requests/responses asíncronos
     private final Map<String, CompletableFuture<ServiceResponseDTO>> pendingRequests = new ConcurrentHashMap<>();
+    // Solicitudes que vencieron sin respuesta del marketplace
+    private final AtomicLong timeouts = new AtomicLong();
 
     /**
      * Solicita información de un servicio vía Kafka
      */
     public CompletableFuture<ServiceResponseDTO> requestServiceInfo(UUID serviceId) {
         String requestId = UUID.randomUUID().toString();
-        // ServiceRequestDTO request = new ServiceRequestDTO(serviceId, requestId, "carrito-compras-service");
+        ServiceRequestDTO request = new ServiceRequestDTO(serviceId, requestId, "carrito-compras-service");
 
         CompletableFuture<ServiceResponseDTO> future = new CompletableFuture<>();
         pendingRequests.put(requestId, future);
@@ -38,6 +43,9 @@ public class KafkaMessagingService {
         future.orTimeout(10, TimeUnit.SECONDS)
                 .exceptionally(throwable -> {
                     pendingRequests.remove(requestId);
+                    if (throwable instanceof TimeoutException) {
+                        timeouts.incrementAndGet();
+                    }
                     log.error("Timeout en solicitud de servicio {}: {}", serviceId, throwable.getMessage());
                     ServiceResponseDTO errorResponse = new ServiceResponseDTO();
                     errorResponse.setRequestId(requestId);
@@ -45,14 +53,13 @@ public class KafkaMessagingService {
                     return errorResponse;
                 });
 
-        // // boolean sent = streamBridge.send("serviceRequest-out-0", request);
-        // boolean sent = false;
-        // if (!sent) {
-        //     pendingRequests.remove(requestId);
-        //     future.completeExceptionally(new RuntimeException("No se pudo enviar la solicitud de servicio"));
-        // } else {
-        //     log.info("Solicitud enviada para servicio {} con requestId {}", serviceId, requestId);
-        // }
+        boolean sent = streamBridge.send("serviceRequest-out-0", request);
+        if (!sent) {
+            pendingRequests.remove(requestId);
+            future.completeExceptionally(new RuntimeException("No se pudo enviar la solicitud de servicio"));
+        } else {
+            log.info("Solicitud enviada para servicio {} con requestId {}", serviceId, requestId);
+        }
 
         return future;
     }
@@ -76,6 +83,20 @@ public class KafkaMessagingService {
         }
     }
 
+    /**
+     * Cantidad de solicitudes esperando respuesta del marketplace
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Cantidad de solicitudes vencidas sin respuesta desde el arranque
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
     // /**
     //  * Publica evento de carrito
     //  */
@@ -0,0 +1,106 @@
+package com.orden_pago.demo.service.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de carriles ordenados para procesar eventos del marketplace
+ *
+ * Cada carril es un único hilo con una cola acotada; los eventos de un mismo
+ * serviceId siempre caen en el mismo carril, así que se procesan en el orden
+ * en que llegaron, mientras que servicios distintos avanzan en paralelo. Si
+ * la cola de un carril está llena, quien envía espera (backpressure hacia el
+ * consumidor de Kafka) en lugar de descartar o reordenar eventos.
+ */
+@Component
+@Slf4j
+public class OrderedLaneExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public OrderedLaneExecutor(
+            @Value("${kafka.consumer.lanes:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int laneCount,
+            @Value("${kafka.consumer.lane-queue-capacity:256}") int queueCapacity) {
+        this.lanes = new ThreadPoolExecutor[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String threadName = "catalog-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, threadName),
+                    OrderedLaneExecutor::waitForSpace);
+        }
+        log.info("🛣️ Procesamiento de eventos del marketplace con {} carriles ordenados por serviceId", lanes.length);
+    }
+
+    /**
+     * Encola una tarea en el carril del serviceId
+     */
+    public void execute(UUID serviceId, Runnable task) {
+        lanes[laneOf(serviceId)].execute(task);
+    }
+
+    /**
+     * Carril asignado a un serviceId
+     */
+    public int laneOf(UUID serviceId) {
+        return serviceId == null ? 0 : Math.floorMod(serviceId.hashCode(), lanes.length);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Tareas en cola (sin contar las que se están ejecutando) sumando todos los carriles
+     */
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        return queued;
+    }
+
+    /**
+     * Termina los carriles procesando lo que ya estaba en cola
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("⚠️ Carril con {} eventos pendientes al apagar", lane.getQueue().size());
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Con la cola llena, bloquea al emisor hasta que haya espacio
+     */
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Carril detenido");
+        }
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando espacio en el carril", e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Descarta eventos del marketplace viejos o sin cambios antes de aplicarlos
+ *
+ * Guarda por serviceId el timestamp del último evento aplicado y una huella
+ * de 64 bits de los campos que se copian a los items del carrito (no los
+ * campos en sí). Un evento con timestamp anterior se
+ * descarta; uno sin cambios en esos campos no actualiza la base de datos, y
+ * si además no cambia nada visible en el catálogo tampoco toca el catálogo.
+ * De los servicios eliminados o desalojados del catálogo solo se conserva el
+ * timestamp, para seguir descartando eventos viejos sin retener su contenido.
+ * También se guarda cuándo se aplicó el último evento (reloj de esta
+ * instancia), para descartar reintentos que un evento posterior ya superó
+ * aunque no traigan timestamp.
+ *
+ * Los eventos de un mismo serviceId se procesan en un único carril
+ * (OrderedLaneExecutor), así que no hay carreras por servicio.
+ */
+@Component
+@Slf4j
+public class ServiceEventFilter {
+
+    /**
+     * Qué parte de un evento hay que aplicar
+     */
+    public enum Decision {
+        APPLY, // catálogo y carritos
+        CATALOG_ONLY, // cambió el catálogo pero no los campos del carrito
+        DUPLICATE, // nada cambió
+        STALE // llegó después de un evento más nuevo
+    }
+
+    // Huella reservada para servicios eliminados o desalojados (sin contenido guardado)
+    static final long NO_CONTENT = 0L;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<UUID, LastApplied> lastApplied = new ConcurrentHashMap<>();
+
+    private final Counter applied;
+    private final Counter catalogOnly;
+    private final Counter duplicates;
+    private final Counter stale;
+
+    public ServiceEventFilter(MeterRegistry meterRegistry) {
+        this.applied = Counter.builder("catalog.ingest.events")
+                .description("Eventos del marketplace aplicados al catálogo y a los carritos")
+                .tag("result", "applied")
+                .register(meterRegistry);
+        this.catalogOnly = Counter.builder("catalog.ingest.events")
+                .description("Eventos aplicados solo al catálogo (sin cambios para los carritos)")
+                .tag("result", "cart_unchanged")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("catalog.ingest.events")
+                .description("Eventos descartados por no tener cambios")
+                .tag("result", "duplicate")
+                .register(meterRegistry);
+        this.stale = Counter.builder("catalog.ingest.events")
+                .description("Eventos descartados por llegar fuera de orden")
+                .tag("result", "stale")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Decide qué aplicar del evento comparándolo con el último aplicado y con
+     * la entrada actual del catálogo (null si no existe)
+     */
+    public Decision evaluate(ServiceResponseDTO event, ServiceResponseDTO current) {
+        LastApplied previous = lastApplied.get(event.getServiceId());
+        Instant timestamp = parseTimestamp(event.getTimestamp());
+
+        Decision decision;
+        if (previous != null && timestamp != null && previous.timestamp() != null
+                && timestamp.isBefore(previous.timestamp())) {
+            decision = Decision.STALE;
+        } else if (event.isDeletedEvent() || previous == null || previous.cartFingerprint() == NO_CONTENT) {
+            decision = Decision.APPLY;
+        } else if (previous.cartFingerprint() != cartFingerprint(event)) {
+            decision = Decision.APPLY;
+        } else if (current == null || !sameCatalogContent(current, event)) {
+            decision = Decision.CATALOG_ONLY;
+        } else {
+            decision = Decision.DUPLICATE;
+        }
+
+        switch (decision) {
+            case APPLY -> applied.increment();
+            case CATALOG_ONLY -> catalogOnly.increment();
+            case DUPLICATE -> duplicates.increment();
+            case STALE -> stale.increment();
+        }
+        if (decision == Decision.STALE) {
+            log.debug("Evento viejo del servicio {} descartado ({} < {})",
+                    event.getServiceId(), timestamp, previous.timestamp());
+        }
+        return decision;
+    }
+
+    /**
+     * Registra el evento como el último aplicado de su servicio
+     */
+    public void recordApplied(ServiceResponseDTO event) {
+        Instant timestamp = parseTimestamp(event.getTimestamp());
+        lastApplied.compute(event.getServiceId(), (serviceId, previous) -> new LastApplied(
+                timestamp != null || previous == null ? timestamp : previous.timestamp(),
+                cartFingerprint(event), System.currentTimeMillis()));
+    }
+
+    /**
+     * Registra la eliminación o desactivación de un servicio: conserva solo el
+     * timestamp para descartar eventos más viejos que lleguen después
+     */
+    public void recordRemoved(ServiceResponseDTO event) {
+        Instant timestamp = parseTimestamp(event.getTimestamp());
+        lastApplied.compute(event.getServiceId(), (serviceId, previous) -> new LastApplied(
+                timestamp != null || previous == null ? timestamp : previous.timestamp(), NO_CONTENT,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Suelta el contenido guardado de un servicio desalojado del catálogo
+     * (el próximo evento se aplica completo)
+     */
+    public void forgetContent(UUID serviceId) {
+        lastApplied.computeIfPresent(serviceId,
+                (id, previous) -> previous.cartFingerprint() == NO_CONTENT
+                        ? previous
+                        : new LastApplied(previous.timestamp(), NO_CONTENT, previous.appliedAt()));
+    }
+
+    /**
+     * Indica si un reintento quedó superado: después de su primer fallo ya se
+     * aplicó (o se descartó por duplicado) otro evento del mismo servicio, que
+     * por el orden del carril es más nuevo. Se cuenta como evento viejo.
+     *
+     * @param firstFailedAt epoch millis del primer fallo del evento reintentado
+     */
+    public boolean isSupersededRetry(UUID serviceId, long firstFailedAt) {
+        LastApplied previous = lastApplied.get(serviceId);
+        if (previous == null || firstFailedAt <= 0 || previous.appliedAt() <= firstFailedAt) {
+            return false;
+        }
+        stale.increment();
+        return true;
+    }
+
+    /**
+     * Timestamp del último evento aplicado de un servicio (null si no hay uno
+     * o si los eventos no traían timestamp)
+     */
+    public Instant getLastAppliedTimestamp(UUID serviceId) {
+        LastApplied previous = lastApplied.get(serviceId);
+        return previous != null ? previous.timestamp() : null;
+    }
+
+    public long getSkippedCount() {
+        return (long) (duplicates.count() + stale.count());
+    }
+
+    public int getTrackedServices() {
+        return lastApplied.size();
+    }
+
+    /**
+     * Interpreta el timestamp del evento (ISO-8601 con o sin zona, o epoch en
+     * milisegundos); null si no viene o no se reconoce
+     */
+    public static Instant parseTimestamp(String timestamp) {
+        if (timestamp == null || timestamp.isBlank()) {
+            return null;
+        }
+        String value = timestamp.trim();
+        try {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return Instant.ofEpochMilli(Long.parseLong(value));
+            }
+            if (value.endsWith("Z")) {
+                return Instant.parse(value);
+            }
+            try {
+                return OffsetDateTime.parse(value).toInstant();
+            } catch (DateTimeParseException e) {
+                return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC);
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            log.debug("Timestamp de evento no reconocido: {}", timestamp);
+            return null;
+        }
+    }
+
+    /**
+     * Compara los campos visibles en el catálogo (sin los datos propios del evento)
+     */
+    private static boolean sameCatalogContent(ServiceResponseDTO current, ServiceResponseDTO event) {
+        return Objects.equals(current.getTitle(), event.getTitle())
+                && Objects.equals(current.getDescription(), event.getDescription())
+                && samePrice(current.getPrice(), event.getPrice())
+                && Objects.equals(current.getAverageRating(), event.getAverageRating())
+                && Objects.equals(current.getCategoryId(), event.getCategoryId())
+                && Objects.equals(current.getCategoryName(), event.getCategoryName())
+                && Objects.equals(current.getStatusId(), event.getStatusId())
+                && Objects.equals(current.getStatusName(), event.getStatusName())
+                && Objects.equals(current.getCountryId(), event.getCountryId())
+                && Objects.equals(current.getCountryName(), event.getCountryName())
+                && Objects.equals(current.getCountryCode(), event.getCountryCode())
+                && Objects.equals(current.getPrimaryImageUrl(), event.getPrimaryImageUrl())
+                && Objects.equals(current.getIsActive(), event.getIsActive())
+                && current.isDeletedEvent() == event.isDeletedEvent();
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    /**
+     * Huella de 64 bits de los campos del servicio que se copian a los items
+     * del carrito (ver CartService.updateCartItemWithServiceInfo)
+     *
+     * FNV-1a sobre los campos normalizados (textos en UTF-8 con su largo,
+     * precio sin ceros a la derecha, rating por sus bits) y mezcla final de
+     * MurmurHash3. Dos contenidos distintos solo se confunden con
+     * probabilidad ~2^-64, en cuyo caso el evento se trata como duplicado.
+     */
+    static long cartFingerprint(ServiceResponseDTO event) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, event.getTitle());
+        hash = mix(hash, event.getDescription());
+        hash = mix(hash, event.getPrice() != null ? event.getPrice().stripTrailingZeros().toString() : null);
+        hash = mix(hash, event.getAverageRating() != null
+                ? Double.doubleToLongBits(event.getAverageRating())
+                : Long.MIN_VALUE);
+        hash = mix(hash, event.getSafeCategoryName());
+        hash = mix(hash, event.getPrimaryImageUrl());
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == NO_CONTENT ? 1L : hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        hash = mix(hash, bytes.length);
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * cartFingerprint es NO_CONTENT en servicios eliminados o desalojados;
+     * appliedAt es el epoch millis local en que se registró
+     */
+    private record LastApplied(Instant timestamp, long cartFingerprint, long appliedAt) {
+    }
+}
@@ -1,22 +1,45 @@
 package com.orden_pago.demo.service.kafka;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
 import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.CacheInvalidationType;
+import com.orden_pago.demo.enums.CartPricingMode;
+import com.orden_pago.demo.service.CacheInvalidationBus;
 import com.orden_pago.demo.service.CartService;
+import com.orden_pago.demo.service.CatalogEventPublisher;
+import com.orden_pago.demo.service.CatalogFacetIndex;
+import com.orden_pago.demo.service.CatalogResponseCache;
+import com.orden_pago.demo.service.CatalogSearchIndex;
+import com.orden_pago.demo.service.kafka.FailedEventRouter.RetryTier;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -31,50 +54,238 @@ public class ServiceKafkaConsumer {
     private final CartService cartService;
     private final KafkaMessagingService kafkaMessagingService;
     private final ObjectMapper objectMapper;
-
-    // Static list to store services received from Kafka
-    private static final Map<UUID, ServiceResponseDTO> AVAILABLE_SERVICES = new ConcurrentHashMap<>();
-    private static final List<ServiceResponseDTO> SERVICES_LIST = new CopyOnWriteArrayList<>();
+    private final CatalogEventPublisher catalogEventPublisher;
+    private final CatalogResponseCache catalogResponseCache;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final CatalogFacetIndex catalogFacetIndex;
+    private final OrderedLaneExecutor orderedLaneExecutor;
+    private final ServiceEventFilter serviceEventFilter;
+    private final FailedEventRouter failedEventRouter;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CatalogCatchUpTracker catalogCatchUpTracker;
+
+    private static final int CATALOG_SEGMENT_SIZE = 1 << 20; // 1 MiB por segmento fuera del heap
+
+    // Servicios recibidos desde Kafka, codificados fuera del heap (ver CompactCatalogStore);
+    // el orden es el de la última actualización de cada servicio
+    private static final CompactCatalogStore CATALOG_STORE = new CompactCatalogStore(CATALOG_SEGMENT_SIZE);
+
+    // Versión del catálogo: se incrementa DESPUÉS de cada cambio en la lista, así
+    // quien lea la versión antes que la lista nunca asocia datos viejos a una
+    // versión nueva. El prefijo de arranque evita que dos instancias (o un
+    // reinicio) reutilicen el mismo número de versión para contenidos distintos.
+    private static final AtomicLong CATALOG_VERSION = new AtomicLong();
+    private static final String CATALOG_EPOCH = Long.toString(UUID.randomUUID().getMostSignificantBits() >>> 1, 36);
+
+    // Servicios desalojados por el presupuesto (se vuelven a pedir al marketplace si se necesitan)
+    private static final Set<UUID> EVICTED_SERVICES = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+    // Altas, bajas y desalojos se serializan entre carriles; las lecturas no toman lock
+    private static final Object CATALOG_WRITE_LOCK = new Object();
+
+    // Servicios que otra instancia ya actualizó a un evento más nuevo que el aplicado aquí
+    // (ver CacheInvalidationBus); las búsquedas esperan a que este consumidor lo alcance
+    private static final Map<UUID, StaleMark> STALE_SERVICES = new ConcurrentHashMap<>();
+
+    // Último evento procesado (reloj de esta instancia) y timestamp más nuevo aplicado al catálogo
+    private static final AtomicLong LAST_INGESTED_AT = new AtomicLong();
+    private static final AtomicLong LAST_APPLIED_EVENT_TIMESTAMP = new AtomicLong(Long.MIN_VALUE);
+
+    @Value("${catalog.memory.max-bytes:64MB}")
+    private DataSize maxCatalogSize;
+
+    @Value("${catalog.memory.low-water-ratio:0.9}")
+    private double lowWaterRatio;
+
+    @Value("${cart.pricing.mode:EAGER}")
+    private CartPricingMode pricingMode;
+
+    @PostConstruct
+    void subscribeToInvalidations() {
+        cacheInvalidationBus.subscribe(CacheInvalidationType.CATALOG, this::onRemoteCatalogInvalidation);
+    }
 
     /**
      * Consumidor para respuestas de servicios del marketplace
+     *
+     * El hilo del consumidor solo decodifica y deserializa; la actualización
+     * del catálogo y de los carritos corre en el carril del serviceId, que
+     * confirma el offset al terminar. Si el procesamiento falla, el evento
+     * pasa al topic de reintentos (ver FailedEventRouter) sin frenar la
+     * partición.
      */
     @Bean
     public Consumer<Message<String>> serviceResponse() {
         return message -> {
-            try {
-                log.info("Recibida respuesta de servicio del marketplace");
+            log.info("Recibida respuesta de servicio del marketplace");
+            dispatch(message.getPayload(), 0, false, 0L, trackCatchUp(message, acknowledgmentOf(message)));
+        };
+    }
 
-                String rawMessage = message.getPayload();
-                log.debug("Mensaje crudo recibido: {}", rawMessage);
+    /**
+     * Al confirmar el registro lo descuenta del atraso del catálogo
+     * (ver CatalogCatchUpTracker)
+     */
+    private Acknowledgment trackCatchUp(Message<?> message, Acknowledgment acknowledgment) {
+        String topic = message.getHeaders().get(KafkaHeaders.RECEIVED_TOPIC, String.class);
+        Integer partition = message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class);
+        Long offset = message.getHeaders().get(KafkaHeaders.OFFSET, Long.class);
+        if (acknowledgment == null || topic == null || partition == null || offset == null) {
+            return acknowledgment;
+        }
+        return () -> {
+            acknowledgment.acknowledge();
+            catalogCatchUpTracker.recordProcessed(topic, partition, offset);
+        };
+    }
 
-                String jsonPayload = decodeMessage(rawMessage);
-                log.debug("JSON decodificado: {}", jsonPayload);
+    /**
+     * Consumidores de los topics de reintentos, uno por escalón de backoff
+     * (ver FailedEventRouter.RetryTier)
+     */
+    @Bean
+    public Consumer<Message<String>> serviceResponseRetry1s() {
+        return retryTierConsumer(RetryTier.RETRY_1S);
+    }
 
-                ServiceResponseDTO serviceResponse = objectMapper.readValue(jsonPayload, ServiceResponseDTO.class);
+    @Bean
+    public Consumer<Message<String>> serviceResponseRetry4s() {
+        return retryTierConsumer(RetryTier.RETRY_4S);
+    }
 
-                log.info("Servicio deserializado exitosamente: ID={}, Name={}",
-                        serviceResponse.getServiceId(), serviceResponse.getName());
+    @Bean
+    public Consumer<Message<String>> serviceResponseRetry16s() {
+        return retryTierConsumer(RetryTier.RETRY_16S);
+    }
 
-                if (serviceResponse == null || serviceResponse.getServiceId() == null) {
-                    log.warn("Respuesta de servicio inválida o vacía recibida");
-                    return;
-                }
+    /**
+     * Espera al vencimiento de cada evento del escalón y lo procesa de nuevo en
+     * su carril. Los eventos de un escalón vencen en el orden de la partición,
+     * así que la espera no retrasa a ninguno que ya esté vencido.
+     */
+    private Consumer<Message<String>> retryTierConsumer(RetryTier tier) {
+        return message -> {
+            Acknowledgment acknowledgment = acknowledgmentOf(message);
+            int attempt = (int) numericHeader(message, FailedEventRouter.ATTEMPT_HEADER, tier.attempt());
+            long dueAt = numericHeader(message, FailedEventRouter.DUE_AT_HEADER, System.currentTimeMillis());
+            boolean replayed = Boolean.parseBoolean(
+                    FailedEventRouter.headerAsString(message.getHeaders().get(FailedEventRouter.REPLAYED_HEADER)));
+            long firstFailedAt = numericHeader(message, FailedEventRouter.FIRST_FAILED_AT_HEADER, 0L);
+
+            log.debug("Reintento {} recibido, vence en {} ms", attempt, dueAt - System.currentTimeMillis());
+            failedEventRouter.awaitDue(tier, dueAt);
+            dispatch(message.getPayload(), attempt, replayed, firstFailedAt, acknowledgment);
+        };
+    }
 
-                processServiceResponse(serviceResponse);
+    /**
+     * Decodifica el mensaje y lo envía al carril de su serviceId
+     * Los mensajes que no se pueden leer van directo al dead-letter topic
+     */
+    private void dispatch(String rawMessage, int attempt, boolean replayed, long firstFailedAt,
+            Acknowledgment acknowledgment) {
+        boolean acknowledgeNow = true;
+        try {
+            log.debug("Mensaje crudo recibido: {}", rawMessage);
 
-                if (serviceResponse.getRequestId() != null) {
-                    kafkaMessagingService.handleServiceResponse(serviceResponse);
-                }
+            String jsonPayload = decodeMessage(rawMessage);
+            log.debug("JSON decodificado: {}", jsonPayload);
 
-                log.info("Respuesta de servicio procesada exitosamente. ServiceId: {}",
-                        serviceResponse.getServiceId());
+            ServiceResponseDTO serviceResponse = objectMapper.readValue(jsonPayload, ServiceResponseDTO.class);
 
-            } catch (Exception e) {
-                log.error("Error procesando respuesta de servicio del marketplace: {}",
-                        e.getMessage(), e);
+            if (serviceResponse == null || serviceResponse.getServiceId() == null) {
+                log.warn("Respuesta de servicio inválida o vacía recibida");
+                return;
             }
-        };
+
+            log.info("Servicio deserializado exitosamente: ID={}, Name={}",
+                    serviceResponse.getServiceId(), serviceResponse.getName());
+
+            orderedLaneExecutor.execute(serviceResponse.getServiceId(),
+                    () -> processInLane(serviceResponse, rawMessage, attempt, replayed, firstFailedAt,
+                            acknowledgment));
+            acknowledgeNow = false; // lo confirma el carril
+
+        } catch (JsonProcessingException e) {
+            log.error("Mensaje del marketplace ilegible: {}", e.getMessage());
+            try {
+                failedEventRouter.sendToDeadLetter(rawMessage, null, attempt, replayed, firstFailedAt, e);
+            } catch (Exception routingError) {
+                log.error("❌ No se pudo enviar el mensaje ilegible al dead-letter topic; queda sin confirmar: {}",
+                        routingError.getMessage());
+                acknowledgeNow = false;
+            }
+        } catch (Exception e) {
+            log.error("Error procesando respuesta de servicio del marketplace: {}",
+                    e.getMessage(), e);
+        } finally {
+            if (acknowledgeNow) {
+                acknowledge(acknowledgment);
+            }
+        }
+    }
+
+    /**
+     * Procesa un evento dentro de su carril y confirma su offset
+     * Si falla, el evento se envía a reintento antes de confirmarlo; si
+     * tampoco se puede enviar, no se confirma y Kafka lo volverá a entregar
+     *
+     * Un reintento se descarta si después de su primer fallo ya se aplicó otro
+     * evento del servicio: los eventos sin timestamp no se pueden comparar y,
+     * aplicados 1-16 s tarde, pisarían datos más nuevos.
+     */
+    private void processInLane(ServiceResponseDTO serviceResponse, String rawMessage, int attempt,
+            boolean replayed, long firstFailedAt, Acknowledgment acknowledgment) {
+        try {
+            if (attempt > 0 && serviceEventFilter.isSupersededRetry(serviceResponse.getServiceId(), firstFailedAt)) {
+                log.info("⏭️ Reintento {} del servicio {} omitido: ya se aplicó un evento posterior",
+                        attempt, serviceResponse.getServiceId());
+                acknowledge(acknowledgment);
+                return;
+            }
+
+            processServiceResponse(serviceResponse);
+
+            if (serviceResponse.getRequestId() != null) {
+                kafkaMessagingService.handleServiceResponse(serviceResponse);
+            }
+
+            log.info("Respuesta de servicio procesada exitosamente. ServiceId: {}",
+                    serviceResponse.getServiceId());
+
+        } catch (Exception e) {
+            log.error("Error procesando respuesta de servicio del marketplace: {}",
+                    e.getMessage(), e);
+            try {
+                failedEventRouter.routeFailure(rawMessage, serviceResponse.getServiceIdAsString(),
+                        attempt, replayed, firstFailedAt, e);
+            } catch (Exception routingError) {
+                log.error("❌ No se pudo enviar el evento del servicio {} a reintento; queda sin confirmar: {}",
+                        serviceResponse.getServiceId(), routingError.getMessage());
+                return;
+            }
+        }
+        acknowledge(acknowledgment);
+    }
+
+    private static Acknowledgment acknowledgmentOf(Message<?> message) {
+        return message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+    }
+
+    private static long numericHeader(Message<?> message, String name, long defaultValue) {
+        String value = FailedEventRouter.headerAsString(message.getHeaders().get(name));
+        try {
+            return value != null ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            log.warn("Cabecera {} inválida en reintento: {}", name, value);
+            return defaultValue;
+        }
+    }
+
+    private void acknowledge(Acknowledgment acknowledgment) {
+        if (acknowledgment != null) {
+            acknowledgment.acknowledge();
+        }
     }
 
     /**
@@ -121,12 +332,55 @@ public class ServiceKafkaConsumer {
         try {
             log.debug("Procesando información del servicio: {} - {}",
                     serviceResponse.getServiceId(), serviceResponse.getName());
+            LAST_INGESTED_AT.set(System.currentTimeMillis());
+
+            // Descartar eventos viejos o repetidos sin cambios
+            ServiceEventFilter.Decision decision = serviceEventFilter.evaluate(serviceResponse,
+                    CATALOG_STORE.peek(serviceResponse.getServiceId()));
+            if (decision == ServiceEventFilter.Decision.STALE || decision == ServiceEventFilter.Decision.DUPLICATE) {
+                log.info("⏭️ Evento del servicio {} omitido ({})", serviceResponse.getServiceId(), decision);
+                if (decision == ServiceEventFilter.Decision.DUPLICATE) {
+                    // Mismo contenido, pero el evento es el más reciente: avanza el timestamp aplicado
+                    serviceEventFilter.recordApplied(serviceResponse);
+                    releaseStaleMark(serviceResponse.getServiceId());
+                }
+                return;
+            }
+
+            // Guardar el servicio en la lista estática (con sus índices), o sacarlo si fue
+            // eliminado o desactivado; después respetar el presupuesto de memoria
+            boolean removal = serviceResponse.isRemovalEvent();
+            if (removal) {
+                removeServiceFromStaticList(serviceResponse.getServiceId());
+            } else {
+                saveServiceToStaticList(serviceResponse);
+                evictColdServices();
+            }
+
+            // Descartar las respuestas serializadas de la versión anterior del catálogo
+            catalogResponseCache.evictStale();
 
-            // Guardar el servicio en la lista estática
-            saveServiceToStaticList(serviceResponse);
+            // Notificar el cambio a los clientes suscritos al stream del catálogo
+            catalogEventPublisher.publish(serviceResponse);
 
             // Integrar con CartService para actualizar información del item (mantener funcionalidad existente)
-            cartService.updateServiceInfo(serviceResponse);
+            // Solo si cambió algún campo que se copia a los items del carrito; una baja no
+            // copia nada (los items conservan los últimos datos conocidos del servicio).
+            // En modo lazy la ingesta no toca los carritos: los precios se concilian al pagar
+            if (decision == ServiceEventFilter.Decision.APPLY && !removal
+                    && pricingMode == CartPricingMode.EAGER) {
+                cartService.updateServiceInfo(serviceResponse);
+            }
+            if (removal) {
+                serviceEventFilter.recordRemoved(serviceResponse);
+            } else {
+                serviceEventFilter.recordApplied(serviceResponse);
+            }
+            LAST_APPLIED_EVENT_TIMESTAMP.accumulateAndGet(appliedVersion(serviceResponse.getServiceId()), Math::max);
+
+            // Avisar a las demás instancias y liberar a quien esperaba este evento aquí
+            publishCatalogInvalidation(serviceResponse);
+            releaseStaleMark(serviceResponse.getServiceId());
 
             log.info("Información del servicio {} actualizada en el carrito y guardada en lista estática",
                     serviceResponse.getServiceId());
@@ -140,32 +394,187 @@ public class ServiceKafkaConsumer {
 
     /**
      * Guarda un servicio en la lista estática de servicios disponibles
+     * Los errores se propagan para que el evento pase a reintento; la versión
+     * del catálogo avanza igual, porque el registro pudo quedar ya escrito
      */
     private void saveServiceToStaticList(ServiceResponseDTO serviceResponse) {
+        UUID serviceId = serviceResponse.getServiceId();
+
+        synchronized (CATALOG_WRITE_LOCK) {
+            try {
+                // Reemplaza la versión anterior y la mueve al final del catálogo; una
+                // actualización conserva el último acceso, uno nuevo arranca como recién usado
+                CATALOG_STORE.put(serviceResponse);
+                EVICTED_SERVICES.remove(serviceId);
+
+                // Mantener el índice de búsqueda y las facetas
+                catalogSearchIndex.index(serviceResponse);
+                catalogFacetIndex.upsert(serviceResponse);
+            } finally {
+                CATALOG_VERSION.incrementAndGet();
+            }
+        }
+
+        log.info("✅ Servicio {} guardado en lista estática. Total servicios: {}",
+                serviceId, CATALOG_STORE.size());
+    }
+
+    /**
+     * Saca del catálogo (y de sus índices) un servicio eliminado o desactivado
+     * Un servicio desalojado sigue en los índices, así que también se quita de ellos
+     */
+    private void removeServiceFromStaticList(UUID serviceId) {
+        synchronized (CATALOG_WRITE_LOCK) {
+            // Aunque ya no esté en el catálogo se limpian los índices: un reintento de
+            // una baja que falló a medias los encuentra con el registro ya borrado
+            EVICTED_SERVICES.remove(serviceId);
+            CATALOG_STORE.remove(serviceId);
+            try {
+                catalogSearchIndex.remove(serviceId);
+                catalogFacetIndex.remove(serviceId);
+            } finally {
+                CATALOG_VERSION.incrementAndGet();
+            }
+        }
+        log.info("🗑️ Servicio {} eliminado del catálogo. Total servicios: {}",
+                serviceId, CATALOG_STORE.size());
+    }
+
+    /**
+     * Si el catálogo supera el presupuesto de memoria, desaloja los servicios
+     * consultados hace más tiempo hasta bajar a la marca inferior
+     * (low-water-ratio del presupuesto), para no desalojar en cada evento
+     *
+     * Solo se suelta el registro completo: las entradas del índice de búsqueda
+     * y de las facetas (términos y tres valores por servicio) se conservan, así
+     * que un servicio desalojado se sigue encontrando y contando; al
+     * devolverlo en una búsqueda se vuelve a pedir al marketplace (ver
+     * CartService.searchAvailableServices). Por eso el presupuesto no las
+     * cuenta: desalojar no las libera. Tampoco cuenta EVICTED_SERVICES ni lo
+     * que ServiceEventFilter guarda por servicio: crece con los servicios
+     * distintos vistos, no con su contenido. Los índices se liberan en la baja
+     * del servicio; el último evento aplicado se conserva para seguir
+     * descartando eventos viejos.
+     */
+    private void evictColdServices() {
+        long maxBytes = maxCatalogSize.toBytes();
+        if (CATALOG_STORE.getWeight() <= maxBytes) {
+            return;
+        }
+        long targetBytes = (long) (maxBytes * lowWaterRatio);
+        int evictedCount;
+
+        synchronized (CATALOG_WRITE_LOCK) {
+            long weight = CATALOG_STORE.getWeight();
+            if (weight <= maxBytes) {
+                return; // otro carril ya desalojó
+            }
+            List<UUID> coldest = CATALOG_STORE.coldest(weight - targetBytes);
+            for (UUID serviceId : coldest) {
+                CATALOG_STORE.remove(serviceId);
+                EVICTED_SERVICES.add(serviceId);
+                serviceEventFilter.forgetContent(serviceId);
+            }
+            CATALOG_VERSION.incrementAndGet();
+            EVICTIONS.addAndGet(coldest.size());
+            evictedCount = coldest.size();
+        }
+        log.info("🧊 {} servicios poco consultados desalojados del catálogo. Memoria aproximada: {} de {} bytes",
+                evictedCount, CATALOG_STORE.getWeight(), maxBytes);
+    }
+
+    /**
+     * Difunde el timestamp del evento aplicado para que las instancias que aún
+     * no lo recibieron marquen el servicio como desactualizado
+     * Los eventos sin timestamp no se pueden ordenar entre instancias y no se difunden
+     */
+    private void publishCatalogInvalidation(ServiceResponseDTO serviceResponse) {
+        Instant timestamp = ServiceEventFilter.parseTimestamp(serviceResponse.getTimestamp());
+        if (timestamp != null) {
+            cacheInvalidationBus.publish(CacheInvalidationType.CATALOG,
+                    serviceResponse.getServiceIdAsString(), timestamp.toEpochMilli());
+        }
+    }
+
+    /**
+     * Otra instancia aplicó un evento del servicio: si aquí todavía no llegó,
+     * se marca como desactualizado hasta que este consumidor lo alcance
+     */
+    private void onRemoteCatalogInvalidation(CacheInvalidationDTO invalidation) {
+        UUID serviceId;
         try {
-            UUID serviceId = serviceResponse.getServiceId();
-            
-            // Guardar en el Map para acceso rápido por ID
-            AVAILABLE_SERVICES.put(serviceId, serviceResponse);
-            
-            // Actualizar la lista, removiendo duplicados si existen
-            SERVICES_LIST.removeIf(existing -> 
-                existing.getServiceId().equals(serviceResponse.getServiceId()));
-            SERVICES_LIST.add(serviceResponse);
-            
-            log.info("✅ Servicio {} guardado en lista estática. Total servicios: {}", 
-                    serviceId, AVAILABLE_SERVICES.size());
-                    
-        } catch (Exception e) {
-            log.error("❌ Error guardando servicio en lista estática: {}", e.getMessage());
+            serviceId = UUID.fromString(invalidation.getKey());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalidación de catálogo con serviceId inválido: {}", invalidation.getKey());
+            return;
+        }
+        STALE_SERVICES.compute(serviceId, (id, mark) -> {
+            if (appliedVersion(id) >= invalidation.getVersion()
+                    || (mark != null && mark.version() >= invalidation.getVersion())) {
+                return mark;
+            }
+            return new StaleMark(invalidation.getVersion(),
+                    mark != null ? mark.caughtUp() : new CompletableFuture<>());
+        });
+    }
+
+    /**
+     * Quita la marca de desactualizado si el evento aplicado ya alcanzó al de
+     * la otra instancia
+     */
+    private void releaseStaleMark(UUID serviceId) {
+        STALE_SERVICES.computeIfPresent(serviceId, (id, mark) -> {
+            if (appliedVersion(id) < mark.version()) {
+                return mark;
+            }
+            mark.caughtUp().complete(null);
+            return null;
+        });
+    }
+
+    private long appliedVersion(UUID serviceId) {
+        Instant timestamp = serviceEventFilter.getLastAppliedTimestamp(serviceId);
+        return timestamp != null ? timestamp.toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Espera a que este consumidor aplique los eventos del servicio que otra
+     * instancia ya aplicó (retorna de inmediato si no hay nada pendiente)
+     *
+     * @return false si se agotó el tiempo; la marca se descarta para que las
+     *         siguientes búsquedas no vuelvan a esperar
+     */
+    public static boolean awaitCatchUp(UUID serviceId, Duration timeout) {
+        StaleMark mark = STALE_SERVICES.get(serviceId);
+        if (mark == null) {
+            return true;
+        }
+        log.debug("⏳ Servicio {} desactualizado respecto de otra instancia, esperando su evento", serviceId);
+        try {
+            mark.caughtUp().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            STALE_SERVICES.remove(serviceId, mark);
+            return false;
         }
     }
 
+    /**
+     * Obtiene la cantidad de servicios marcados como desactualizados respecto
+     * de otras instancias
+     */
+    public static int getStaleServicesCount() {
+        return STALE_SERVICES.size();
+    }
+
     /**
      * Obtiene un servicio específico de la lista estática por ID
      */
     public static ServiceResponseDTO getServiceById(UUID serviceId) {
-        ServiceResponseDTO service = AVAILABLE_SERVICES.get(serviceId);
+        ServiceResponseDTO service = CATALOG_STORE.get(serviceId);
         if (service != null) {
             log.debug("✅ Servicio {} encontrado en lista estática", serviceId);
         } else {
@@ -176,17 +585,41 @@ public class ServiceKafkaConsumer {
 
     /**
      * Obtiene todos los servicios disponibles de la lista estática
+     * No incluye los desalojados por el presupuesto de memoria (ver
+     * getEvictedServicesCount)
      */
     public static List<ServiceResponseDTO> getAllAvailableServices() {
-        log.info("📋 Obteniendo {} servicios desde lista estática", SERVICES_LIST.size());
-        return List.copyOf(SERVICES_LIST); // Retornar copia inmutable
+        List<ServiceResponseDTO> services = CATALOG_STORE.getAll();
+        log.info("📋 Obteniendo {} servicios desde lista estática", services.size());
+        return Collections.unmodifiableList(services); // Retornar copia inmutable
+    }
+
+    /**
+     * Obtiene la versión actual del catálogo (cambia con cada servicio recibido)
+     */
+    public static long getCatalogVersion() {
+        return CATALOG_VERSION.get();
+    }
+
+    /**
+     * Obtiene el ETag del catálogo para la versión actual
+     */
+    public static String getCatalogETag() {
+        return catalogETag(CATALOG_VERSION.get());
+    }
+
+    /**
+     * Obtiene el ETag del catálogo para una versión dada
+     */
+    public static String catalogETag(long version) {
+        return "catalog-" + CATALOG_EPOCH + "-" + version;
     }
 
     /**
      * Verifica si un servicio existe en la lista estática
      */
     public static boolean isServiceAvailable(UUID serviceId) {
-        boolean available = AVAILABLE_SERVICES.containsKey(serviceId);
+        boolean available = CATALOG_STORE.contains(serviceId);
         log.debug("🔍 Servicio {} disponible en lista estática: {}", serviceId, available);
         return available;
     }
@@ -195,18 +628,91 @@ public class ServiceKafkaConsumer {
      * Obtiene el tamaño de la lista de servicios disponibles
      */
     public static int getAvailableServicesCount() {
-        return AVAILABLE_SERVICES.size();
+        return CATALOG_STORE.size();
+    }
+
+    /**
+     * Verifica si un servicio fue desalojado del catálogo por el presupuesto
+     * de memoria (existe en el marketplace, pero hay que volver a pedirlo)
+     */
+    public static boolean wasEvicted(UUID serviceId) {
+        return EVICTED_SERVICES.contains(serviceId);
+    }
+
+    /**
+     * Obtiene la cantidad de servicios desalojados que siguen en el
+     * marketplace (fuera de la lista, pero en la búsqueda y las facetas)
+     */
+    public static int getEvictedServicesCount() {
+        return EVICTED_SERVICES.size();
+    }
+
+    /**
+     * Obtiene los bytes que ocupa el catálogo (registros vivos fuera del heap
+     * más su parte del índice)
+     */
+    public static long getCatalogWeight() {
+        return CATALOG_STORE.getWeight();
+    }
+
+    /**
+     * Obtiene los bytes reservados fuera del heap para el catálogo
+     */
+    public static long getCatalogOffHeapBytes() {
+        return CATALOG_STORE.getOffHeapBytes();
+    }
+
+    /**
+     * Obtiene la cantidad de servicios desalojados desde el arranque
+     */
+    public static long getEvictionCount() {
+        return EVICTIONS.get();
+    }
+
+    /**
+     * Obtiene cuándo se procesó el último evento del marketplace en esta
+     * instancia (aplicado u omitido), o null si no llegó ninguno
+     */
+    public static Instant getLastIngestedAt() {
+        long millis = LAST_INGESTED_AT.get();
+        return millis > 0 ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    /**
+     * Obtiene el timestamp (del marketplace) del evento más nuevo aplicado al
+     * catálogo, o null si no se aplicó ninguno
+     */
+    public static Instant getLastAppliedEventTimestamp() {
+        long millis = LAST_APPLIED_EVENT_TIMESTAMP.get();
+        return millis != Long.MIN_VALUE ? Instant.ofEpochMilli(millis) : null;
     }
 
     /**
      * Limpia la lista estática de servicios (para testing)
      */
     public static void clearServicesList() {
-        AVAILABLE_SERVICES.clear();
-        SERVICES_LIST.clear();
+        synchronized (CATALOG_WRITE_LOCK) {
+            CATALOG_STORE.clear();
+            EVICTED_SERVICES.clear();
+            // Liberar a quien espera en awaitCatchUp al soltar cada marca
+            STALE_SERVICES.keySet().forEach(serviceId -> STALE_SERVICES.computeIfPresent(serviceId, (id, mark) -> {
+                mark.caughtUp().complete(null);
+                return null;
+            }));
+            LAST_INGESTED_AT.set(0);
+            LAST_APPLIED_EVENT_TIMESTAMP.set(Long.MIN_VALUE);
+            CATALOG_VERSION.incrementAndGet();
+        }
         log.info("🧹 Lista estática de servicios limpiada");
     }
 
+    /**
+     * Evento más nuevo que otra instancia ya aplicó; caughtUp se completa al
+     * aplicarlo aquí
+     */
+    private record StaleMark(long version, CompletableFuture<Void> caughtUp) {
+    }
+
     /**
      * Maneja errores en el procesamiento de mensajes
      */
@@ -218,4 +724,4 @@ public class ServiceKafkaConsumer {
                     serviceResponse.getServiceId(), serviceResponse.getName());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+-- Esquema inicial: equivalente a lo que generaba ddl-auto: update
+
+CREATE TABLE carts (
+    id UUID NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    status VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_carts PRIMARY KEY (id)
+);
+
+CREATE TABLE cart_items (
+    id UUID NOT NULL,
+    cart_id UUID NOT NULL,
+    service_id UUID NOT NULL,
+    service_name VARCHAR(255) NOT NULL,
+    service_description VARCHAR(1000),
+    service_price NUMERIC(10, 2) NOT NULL,
+    service_category VARCHAR(255),
+    service_image_url VARCHAR(255),
+    average_rating FLOAT(53),
+    quantity INTEGER NOT NULL,
+    added_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_cart_items PRIMARY KEY (id),
+    CONSTRAINT fk_cart_items_cart FOREIGN KEY (cart_id) REFERENCES carts (id)
+);
+
+CREATE TABLE payments (
+    id UUID NOT NULL,
+    cart_id UUID NOT NULL,
+    amount NUMERIC(10, 2) NOT NULL,
+    method VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    transaction_id VARCHAR(255),
+    processed_at TIMESTAMP(6),
+    card_number VARCHAR(255),
+    card_holder_name VARCHAR(255),
+    user_id VARCHAR(255),
+    CONSTRAINT pk_payments PRIMARY KEY (id),
+    CONSTRAINT fk_payments_cart FOREIGN KEY (cart_id) REFERENCES carts (id)
+);
+
+-- Tablas históricas (carritos completados archivados)
+
+CREATE TABLE carts_archive (
+    id UUID NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    total_amount NUMERIC(10, 2) NOT NULL,
+    total_items INTEGER NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_carts_archive PRIMARY KEY (id)
+);
+
+CREATE TABLE cart_items_archive (
+    id UUID NOT NULL,
+    cart_id UUID NOT NULL,
+    service_id UUID NOT NULL,
+    service_name VARCHAR(255) NOT NULL,
+    service_category VARCHAR(255),
+    service_price NUMERIC(10, 2) NOT NULL,
+    quantity INTEGER NOT NULL,
+    CONSTRAINT pk_cart_items_archive PRIMARY KEY (id)
+);
+
+CREATE TABLE payments_archive (
+    id UUID NOT NULL,
+    cart_id UUID NOT NULL,
+    user_id VARCHAR(255),
+    amount NUMERIC(10, 2) NOT NULL,
+    method VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    transaction_id VARCHAR(255),
+    processed_at TIMESTAMP(6),
+    card_number VARCHAR(255),
+    card_holder_name VARCHAR(255),
+    item_count INTEGER NOT NULL,
+    cart_created_at TIMESTAMP(6),
+    CONSTRAINT pk_payments_archive PRIMARY KEY (id)
+);
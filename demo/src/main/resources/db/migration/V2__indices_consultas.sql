@@ -0,0 +1,30 @@
+-- Índices para las consultas derivadas de los repositorios
+
+-- CartRepository.findByUserIdAndStatus / existsByUserIdAndStatus / findByUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_carts_user_status ON carts (user_id, status);
+
+-- CartRepository.findIdsByStatusAndUpdatedAtBefore (reaper y archivado)
+CREATE INDEX idx_carts_status_updated ON carts (status, updated_at);
+
+-- CartItemRepository.findByCartAndServiceId / existsByCartAndServiceId / findByCartOrderByAddedAtAsc
+CREATE INDEX idx_cart_items_cart_service ON cart_items (cart_id, service_id);
+
+-- CartItemRepository.findByServiceId (propagación de cambios del marketplace)
+CREATE INDEX idx_cart_items_service ON cart_items (service_id);
+
+-- PaymentRepository.findByTransactionId
+CREATE UNIQUE INDEX uk_payments_transaction_id ON payments (transaction_id);
+
+-- PaymentRepository.existsByCart / findByCart / findByCartIn (un pago por carrito)
+CREATE UNIQUE INDEX uk_payments_cart ON payments (cart_id);
+
+-- PaymentRepository.findByUserIdOrderByProcessedAtDesc
+CREATE INDEX idx_payments_user_processed ON payments (user_id, processed_at);
+
+-- PaymentRepository.findByStatus
+CREATE INDEX idx_payments_status ON payments (status);
+
+-- Historial archivado
+CREATE INDEX idx_carts_archive_user_created ON carts_archive (user_id, created_at);
+CREATE INDEX idx_cart_items_archive_cart ON cart_items_archive (cart_id);
+CREATE INDEX idx_payments_archive_user_processed ON payments_archive (user_id, processed_at);
@@ -0,0 +1,2 @@
+-- Versión del catálogo de la que salió el precio de cada item (conciliación de precios en el checkout)
+ALTER TABLE cart_items ADD COLUMN catalog_version BIGINT;
@@ -0,0 +1,7 @@
+-- Arriendo de nodos del generador de IDs de transacción (TransactionNodeLeases):
+-- la clave primaria hace que dos instancias no puedan reclamar el mismo nodo
+CREATE TABLE node_leases (
+    node_id     INT          NOT NULL PRIMARY KEY,
+    instance_id VARCHAR(100) NOT NULL,
+    expires_at  TIMESTAMP    NOT NULL
+);
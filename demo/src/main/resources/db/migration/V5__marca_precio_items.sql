@@ -0,0 +1,4 @@
+-- Timestamp del evento del marketplace del que salió el precio de cada item. Reemplaza a
+-- catalog_version, que era un contador local de cada instancia y no sobrevivía reinicios
+ALTER TABLE cart_items DROP COLUMN catalog_version;
+ALTER TABLE cart_items ADD COLUMN price_event_at TIMESTAMP(6) WITH TIME ZONE;
@@ -0,0 +1,4 @@
+-- Versión del contenido de cada carrito: se incrementa en cada cambio del carrito o de sus items
+-- (CartRepository.incrementContentVersion). Valida los ETags en caché contra la base de datos con
+-- una consulta por el índice idx_carts_user_status, sin depender de que llegue la invalidación
+ALTER TABLE carts ADD COLUMN content_version BIGINT DEFAULT 0 NOT NULL;
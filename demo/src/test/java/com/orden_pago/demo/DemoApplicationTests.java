@@ -3,7 +3,7 @@ package com.orden_pago.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "transaction-id.node-id=0")
 class DemoApplicationTests {
 
 	@Test
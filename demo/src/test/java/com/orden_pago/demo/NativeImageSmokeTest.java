@@ -0,0 +1,232 @@
+package com.orden_pago.demo;
+
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.dto.PaymentRequest;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.PaymentMethod;
+import com.orden_pago.demo.model.Cart;
+import com.orden_pago.demo.model.UuidV7Generator;
+import com.orden_pago.demo.service.kafka.KafkaCacheInvalidationTransport;
+import com.orden_pago.demo.service.kafka.FailedEventRouter.RetryTier;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.ReflectionHintsPredicates;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Imagen nativa de GraalVM (perfil native)
+ *
+ * La primera prueba verifica que NativeRuntimeHints declara la reflexión que
+ * el ejecutable nativo necesita (binding de Jackson de los DTO, entidades,
+ * beans funcionales de Spring Cloud Stream).
+ *
+ * La segunda arranca el ejecutable nativo y el jar en la JVM contra
+ * sustitutos locales (Kafka embebido, JWK set servido en localhost, sin
+ * Eureka) y compara el tiempo hasta aceptar tráfico y la memoria residente
+ * (RSS, de /proc). Se ejecuta solo con -Dbenchmark=true y necesita ambos
+ * artefactos construidos (GraalVM como JAVA_HOME para el nativo):
+ *
+ * mvn -Pnative native:compile -DskipTests
+ * mvn -Pnative package -DskipTests
+ * mvn test -Dtest=NativeImageSmokeTest -Dbenchmark=true
+ */
+class NativeImageSmokeTest {
+
+    private static final long READY_TIMEOUT_SECONDS = 180;
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void runtimeHintsCoverReflectiveAccess() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+        ReflectionHintsPredicates reflection = RuntimeHintsPredicates.reflection();
+
+        // Jackson sobre los DTO que se leen a mano (eventos de Kafka) y sus tipos anidados
+        assertThat(reflection.onMethod(ServiceResponseDTO.class, "setPrice").invoke()).accepts(hints);
+        assertThat(reflection.onMethod(ServiceResponseDTO.class, "getServiceId").invoke()).accepts(hints);
+        assertThat(reflection.onMethod(CacheInvalidationDTO.class, "setOriginInstanceId").invoke()).accepts(hints);
+        assertThat(reflection.onType(PaymentMethod.class)).accepts(hints);
+        assertThat(reflection.onMethod(PaymentRequest.class, "setCardNumber").invoke()).accepts(hints);
+
+        // Hibernate
+        assertThat(reflection.onField(Cart.class, "items")).accepts(hints);
+        assertThat(reflection.onType(UuidV7Generator.class)).accepts(hints);
+
+        // Spring Cloud Stream
+        assertThat(reflection.onMethod(ServiceKafkaConsumer.class, "serviceResponse").invoke()).accepts(hints);
+        for (RetryTier tier : RetryTier.values()) {
+            assertThat(reflection.onMethod(ServiceKafkaConsumer.class, tier.function()).invoke()).accepts(hints);
+        }
+        assertThat(reflection.onMethod(KafkaCacheInvalidationTransport.class, "cacheInvalidation").invoke())
+                .accepts(hints);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void nativeExecutableStartsFasterWithLessMemoryThanJvm() throws Exception {
+        Path executable = Paths.get(System.getProperty("benchmark.native-binary", "target/demo")).toAbsolutePath();
+        Path jar = packagedJar();
+        assumeTrue(Files.isExecutable(executable), "Falta el ejecutable nativo: mvn -Pnative native:compile");
+        assumeTrue(jar != null, "Falta el jar empaquetado: mvn -Pnative package -DskipTests");
+        assumeTrue(Files.isDirectory(Paths.get("/proc/self")), "La RSS se lee de /proc (solo Linux)");
+
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 1);
+        kafka.afterPropertiesSet();
+        HttpServer jwkServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jwkServer.createContext("/certs", exchange -> {
+            byte[] body = "{\"keys\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        jwkServer.start();
+
+        try {
+            List<String> appArgs = List.of(
+                    "--spring.cloud.stream.kafka.binder.brokers=" + kafka.getBrokersAsString(),
+                    "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost:"
+                            + jwkServer.getAddress().getPort() + "/certs",
+                    "--eureka.client.fetch-registry=false",
+                    "--eureka.client.register-with-eureka=false",
+                    "--startup.warmup.catalog-timeout=0s",
+                    "--transaction-id.node-id=0",
+                    "--logging.level.root=WARN");
+
+            List<String> jvmCommand = new ArrayList<>(List.of(
+                    Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-Dspring.aot.enabled=true", "-jar", jar.toString()));
+            jvmCommand.addAll(appArgs);
+            List<String> nativeCommand = new ArrayList<>(List.of(executable.toString()));
+            nativeCommand.addAll(appArgs);
+
+            Measurement jvm = bootUntilReady("jvm", jvmCommand);
+            Measurement nativeImage = bootUntilReady("native", nativeCommand);
+
+            System.out.printf("%-8s %9s %10s%n", "", "listo", "RSS");
+            System.out.printf("%-8s %,6d ms %,7d MB%n", "JVM", jvm.readyMillis(), jvm.rssKb() / 1024);
+            System.out.printf("%-8s %,6d ms %,7d MB%n", "nativo", nativeImage.readyMillis(),
+                    nativeImage.rssKb() / 1024);
+
+            assertThat(nativeImage.readyMillis()).isLessThan(jvm.readyMillis());
+            assertThat(nativeImage.rssKb()).isLessThan(jvm.rssKb());
+        } finally {
+            jwkServer.stop(0);
+            kafka.destroy();
+        }
+    }
+
+    /**
+     * Arranca el proceso y espera a que la readiness responda 200; devuelve
+     * el tiempo hasta entonces y la RSS en ese momento
+     */
+    private Measurement bootUntilReady(String name, List<String> command) throws Exception {
+        int port = freePort();
+        List<String> withPort = new ArrayList<>(command);
+        withPort.add("--server.port=" + port);
+        Path output = workDir.resolve(name + ".log");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(withPort)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+        try {
+            URI readiness = URI.create("http://localhost:" + port + "/actuator/health/readiness");
+            long deadline = start + TimeUnit.SECONDS.toNanos(READY_TIMEOUT_SECONDS);
+            while (!isReady(readiness)) {
+                assertThat(process.isAlive()).as("%s terminó antes de estar listo:%n%s", name, Files.readString(output))
+                        .isTrue();
+                assertThat(System.nanoTime()).as("%s no estuvo listo en %d s", name, READY_TIMEOUT_SECONDS)
+                        .isLessThan(deadline);
+                Thread.sleep(50);
+            }
+            long readyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Measurement(readyMillis, residentSetKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static boolean isReady(URI readiness) {
+        try {
+            HttpResponse<Void> response = HTTP.send(HttpRequest.newBuilder(readiness)
+                    .timeout(Duration.ofSeconds(2))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long residentSetKb(long pid) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get("/proc", Long.toString(pid), "status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Sin VmRSS para el proceso " + pid));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Path packagedJar() throws IOException {
+        Path target = Paths.get("target");
+        if (!Files.isDirectory(target)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".jar"))
+                    .map(Path::toAbsolutePath)
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private record Measurement(long readyMillis, long rssKb) {
+    }
+}
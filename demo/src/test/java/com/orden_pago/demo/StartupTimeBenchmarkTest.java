@@ -0,0 +1,151 @@
+package com.orden_pago.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tiempo de arranque del jar empaquetado con y sin Spring AOT y archivo CDS
+ *
+ * Cada variante arranca una JVM nueva sobre el jar extraído (como en la
+ * imagen de Docker) con spring.context.exit=onRefresh: el contexto se crea
+ * completo y la JVM termina antes de iniciar los consumidores de Kafka, el
+ * registro en Eureka o cualquier llamada externa, así que no hace falta
+ * ningún servicio levantado. Primero se hace la corrida de entrenamiento que
+ * genera el archivo CDS, igual que en el Dockerfile.
+ *
+ * Necesita el jar construido con el perfil aot y se ejecuta solo con
+ * -Dbenchmark=true; -Dbenchmark.runs fija las corridas por variante:
+ *
+ * mvn -Paot package -DskipTests
+ * mvn test -Dtest=StartupTimeBenchmarkTest -Dbenchmark=true -Dbenchmark.runs=3
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StartupTimeBenchmarkTest {
+
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 3);
+    private static final long TIMEOUT_MINUTES = 5;
+    private static final String AOT_INITIALIZER =
+            "BOOT-INF/classes/com/orden_pago/demo/DemoApplication__ApplicationContextInitializer.class";
+    private static final List<String> APP_ARGS = List.of(
+            "--eureka.client.fetch-registry=false",
+            "--eureka.client.register-with-eureka=false",
+            "--transaction-id.node-id=0",
+            "--logging.level.root=WARN");
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void aotAndCdsReduceStartupTime() throws Exception {
+        Path jar = packagedJar();
+        assumeTrue(jar != null && Files.exists(jar),
+                "Falta el jar empaquetado: ejecutar antes mvn -Paot package -DskipTests");
+        jar = jar.toAbsolutePath();
+        boolean aotProcessed;
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            aotProcessed = jarFile.getEntry(AOT_INITIALIZER) != null;
+        }
+        assumeTrue(aotProcessed, "El jar no se construyó con el perfil aot");
+
+        // Mismo layout que la imagen: jar extraído y archivo CDS de una corrida de entrenamiento
+        run(List.of("-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", "app"), List.of());
+        Path app = findExtractedJar(workDir.resolve("app"));
+        long trainingMillis = run(List.of("-XX:ArchiveClassesAtExit=app.jsa", "-Dspring.aot.enabled=true",
+                "-Dspring.context.exit=onRefresh", "-jar", app.toString()), APP_ARGS);
+        assertThat(workDir.resolve("app.jsa")).exists();
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("jar extraído", List.of());
+        variants.put("CDS", List.of("-XX:SharedArchiveFile=app.jsa"));
+        variants.put("AOT", List.of("-Dspring.aot.enabled=true"));
+        variants.put("AOT + CDS", List.of("-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true"));
+
+        Map<String, Long> medians = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            List<String> jvmArgs = new ArrayList<>(variant.getValue());
+            jvmArgs.addAll(List.of("-Dspring.context.exit=onRefresh", "-jar", app.toString()));
+            long[] samples = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                samples[i] = run(jvmArgs, APP_ARGS);
+            }
+            Arrays.sort(samples);
+            medians.put(variant.getKey(), samples[RUNS / 2]);
+        }
+
+        long baseline = medians.get("jar extraído");
+        System.out.printf("Arranque hasta refresh del contexto (mediana de %d corridas, entrenamiento CDS %,d ms)%n",
+                RUNS, trainingMillis);
+        medians.forEach((name, millis) -> System.out.printf("%-14s %,8d ms  %5.1f%%%n",
+                name, millis, 100.0 * (baseline - millis) / baseline));
+
+        assertThat(medians.get("AOT + CDS")).isLessThan(baseline);
+    }
+
+    /**
+     * Arranca una JVM con el mismo java que ejecuta las pruebas y devuelve
+     * cuánto tardó en terminar
+     */
+    private long run(List<String> jvmArgs, List<String> appArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(appArgs);
+        File output = workDir.resolve("output.log").toFile();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+        if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("La JVM no terminó en " + TIMEOUT_MINUTES + " minutos: " + command);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(process.exitValue())
+                .as("%s%n%s", command, Files.readString(output.toPath()))
+                .isZero();
+        return elapsed;
+    }
+
+    private static Path packagedJar() throws IOException {
+        String configured = System.getProperty("benchmark.jar");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        Path target = Paths.get("target");
+        if (!Files.isDirectory(target)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+    }
+
+    private static Path findExtractedJar(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No se encontró el jar extraído en " + directory));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.orden_pago.demo.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de inserción de cart_items: UUID aleatorio sin lotes (esquema
+ * anterior) frente a UUIDv7 con lotes JDBC
+ *
+ * El benchmark se ejecuta solo con -Dbenchmark=true; el volumen se ajusta con
+ * -Dbenchmark.rows (por defecto 1.000.000):
+ *
+ * mvn test -Dtest=UuidV7InsertBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=1000000
+ */
+class UuidV7InsertBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int BATCH_SIZE = 50;
+    private static final int ITEMS_PER_CART = 5;
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void compareInsertThroughputAndIndexSize() throws Exception {
+        Result random = run("uuid-v4-sin-lotes", UUID::randomUUID, 1);
+        Result randomBatched = run("uuid-v4-lotes-" + BATCH_SIZE, UUID::randomUUID, BATCH_SIZE);
+        Result v7Batched = run("uuid-v7-lotes-" + BATCH_SIZE, UuidV7Generator::next, BATCH_SIZE);
+
+        System.out.println();
+        System.out.printf("Inserción de %,d cart_items (H2 en disco)%n", ROWS);
+        System.out.printf("%-22s %14s %16s%n", "escenario", "filas/s", "tamaño (KB)");
+        for (Result result : new Result[] { random, randomBatched, v7Batched }) {
+            System.out.printf("%-22s %,14.0f %,16d%n", result.name, result.rowsPerSecond, result.sizeBytes / 1024);
+        }
+
+        assertThat(v7Batched.rowsPerSecond).isPositive();
+    }
+
+    @Test
+    void generatedIdsAreVersion7AndMonotonic() {
+        UUID previous = UuidV7Generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID current = UuidV7Generator.next();
+            assertThat(current.version()).isEqualTo(7);
+            assertThat(current.variant()).isEqualTo(2);
+            assertThat(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .isPositive();
+            previous = current;
+        }
+    }
+
+    private Result run(String name, Supplier<UUID> ids, int batchSize) throws Exception {
+        String url = "jdbc:h2:file:" + workDir.resolve(name).toAbsolutePath();
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE cart_items (id UUID NOT NULL PRIMARY KEY, cart_id UUID NOT NULL, "
+                        + "service_id UUID NOT NULL, service_price NUMERIC(10, 2) NOT NULL, quantity INTEGER NOT NULL)");
+                ddl.execute("CREATE INDEX idx_cart_items_cart_service ON cart_items (cart_id, service_id)");
+                ddl.execute("CREATE INDEX idx_cart_items_service ON cart_items (service_id)");
+            }
+            connection.setAutoCommit(false);
+
+            long start = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO cart_items (id, cart_id, service_id, service_price, quantity) VALUES (?, ?, ?, ?, ?)")) {
+                UUID cartId = ids.get();
+                for (int i = 0; i < ROWS; i++) {
+                    if (i % ITEMS_PER_CART == 0) {
+                        cartId = ids.get();
+                    }
+                    insert.setObject(1, ids.get());
+                    insert.setObject(2, cartId);
+                    insert.setObject(3, UUID.nameUUIDFromBytes(new byte[] { (byte) (i % 200) }));
+                    insert.setBigDecimal(4, BigDecimal.valueOf(100 + i % 50));
+                    insert.setInt(5, 1 + i % 3);
+
+                    if (batchSize > 1) {
+                        insert.addBatch();
+                        if ((i + 1) % batchSize == 0) {
+                            insert.executeBatch();
+                        }
+                    } else {
+                        insert.executeUpdate();
+                    }
+                    if ((i + 1) % 10_000 == 0) {
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            long size;
+            try (Statement query = connection.createStatement();
+                    ResultSet rs = query.executeQuery("SELECT DISK_SPACE_USED('CART_ITEMS')")) {
+                rs.next();
+                size = rs.getLong(1);
+            }
+            return new Result(name, ROWS / seconds, size);
+        }
+    }
+
+    private record Result(String name, double rowsPerSecond, long sizeBytes) {
+    }
+}
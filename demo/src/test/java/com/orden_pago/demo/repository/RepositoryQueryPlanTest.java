@@ -0,0 +1,119 @@
+package com.orden_pago.demo.repository;
+
+import com.orden_pago.demo.enums.CartStatus;
+import com.orden_pago.demo.enums.PaymentStatus;
+import com.orden_pago.demo.model.Cart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica con EXPLAIN de H2 que las consultas calientes de los repositorios
+ * usan un índice de las migraciones y no recorren la tabla completa
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.orden_pago.demo.repository.RecordingStatementInspector",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RepositoryQueryPlanTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ArchivedCartRepository archivedCartRepository;
+
+    @Autowired
+    private ArchivedCartItemRepository archivedCartItemRepository;
+
+    @Autowired
+    private ArchivedPaymentRepository archivedPaymentRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        cart = new Cart();
+        cart.setUserId("plan-user");
+        cart.setStatus(CartStatus.ACTIVE);
+        cart = cartRepository.saveAndFlush(cart);
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void cartRepositoryHotQueriesUseIndexes() {
+        assertUsesIndex(() -> cartRepository.findByUserIdAndStatus("plan-user", CartStatus.ACTIVE));
+        assertUsesIndex(() -> cartRepository.existsByUserIdAndStatus("plan-user", CartStatus.ACTIVE));
+        assertUsesIndex(() -> cartRepository.findWithItemsByUserIdAndStatus("plan-user", CartStatus.ACTIVE));
+        assertUsesIndex(() -> cartRepository.findVersionByUserIdAndStatus("plan-user", CartStatus.ACTIVE));
+        assertUsesIndex(() -> cartRepository.findByUserIdOrderByCreatedAtDesc("plan-user"));
+        assertUsesIndex(() -> cartRepository.findWithItemsByUserIdOrderByCreatedAtDesc("plan-user"));
+        assertUsesIndex(() -> cartRepository.findIdsByStatusAndUpdatedAtBefore(
+                CartStatus.ACTIVE, LocalDateTime.now(), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void cartItemRepositoryHotQueriesUseIndexes() {
+        UUID serviceId = UUID.randomUUID();
+        assertUsesIndex(() -> cartItemRepository.findByCartAndServiceId(cart, serviceId));
+        assertUsesIndex(() -> cartItemRepository.existsByCartAndServiceId(cart, serviceId));
+        assertUsesIndex(() -> cartItemRepository.findByCartOrderByAddedAtAsc(cart));
+        assertUsesIndex(() -> cartItemRepository.findByServiceId(serviceId));
+    }
+
+    @Test
+    void paymentRepositoryHotQueriesUseIndexes() {
+        assertUsesIndex(() -> paymentRepository.findByTransactionId("TXN-1"));
+        assertUsesIndex(() -> paymentRepository.existsByCart(cart));
+        assertUsesIndex(() -> paymentRepository.findByCart(cart));
+        assertUsesIndex(() -> paymentRepository.findByUserIdOrderByProcessedAtDesc("plan-user"));
+        assertUsesIndex(() -> paymentRepository.findByStatus(PaymentStatus.PENDING));
+    }
+
+    @Test
+    void archiveRepositoryQueriesUseIndexes() {
+        assertUsesIndex(() -> archivedCartRepository.findByUserIdOrderByCreatedAtDesc("plan-user"));
+        assertUsesIndex(() -> archivedCartItemRepository.findByCartIdIn(List.of(cart.getId())));
+        assertUsesIndex(() -> archivedPaymentRepository.findByUserIdOrderByProcessedAtDesc("plan-user"));
+    }
+
+    private void assertUsesIndex(Runnable query) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        query.run();
+
+        List<String> selects = RecordingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+                .toList();
+        assertThat(selects).as("SQL generado por la consulta").isNotEmpty();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String sql : selects) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            assertThat(plan)
+                    .as("Plan de ejecución de: %s", sql)
+                    .doesNotContain("tableScan");
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.orden_pago.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orden_pago.demo.dto.CacheInvalidationDTO;
+import com.orden_pago.demo.dto.CartVersionDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.CacheInvalidationType;
+import com.orden_pago.demo.enums.CartPricingMode;
+import com.orden_pago.demo.service.kafka.CatalogCatchUpTracker;
+import com.orden_pago.demo.service.kafka.FailedEventRouter;
+import com.orden_pago.demo.service.kafka.KafkaMessagingService;
+import com.orden_pago.demo.service.kafka.OrderedLaneExecutor;
+import com.orden_pago.demo.service.kafka.ServiceEventFilter;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Coherencia de las cachés locales con varias instancias en una misma JVM,
+ * conectadas por el bus de invalidaciones
+ *
+ * Un usuario escribe su carrito en una instancia y lee desde cualquier otra
+ * (como detrás del balanceador), con el If-None-Match que tenga: cada lectura
+ * debe reflejar su última escritura (read-your-writes) sin renunciar a los
+ * 304 servidos desde la caché local, aunque las invalidaciones lleguen tarde,
+ * desordenadas o no lleguen.
+ */
+class CacheCoherenceMultiInstanceTest {
+
+    private static final int INSTANCES = 3;
+    private static final int USERS = 200;
+    private static final int OPERATIONS = 20_000;
+    private static final double WRITE_RATIO = 0.2;
+    private static final double CHECKOUT_RATIO = 0.02;
+
+    // Misma configuración que el ObjectMapper de Spring Boot (ignora propiedades desconocidas)
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private final List<OrderedLaneExecutor> laneExecutors = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        laneExecutors.forEach(OrderedLaneExecutor::shutdown);
+        ServiceKafkaConsumer.clearServicesList();
+    }
+
+    @Test
+    void cartReadsSeeOwnWritesWithDelayedReorderedAndLostInvalidations() {
+        Random random = new Random(42);
+        DelayedCluster cluster = new DelayedCluster(random);
+        List<CacheInvalidationBus> buses = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            buses.add(new CacheInvalidationBus(cluster.transport()));
+        }
+
+        Result result = simulateCartTraffic(buses, random, cluster::step);
+
+        assertThat(cluster.delivered()).as("invalidaciones entregadas tarde").isPositive();
+        assertThat(cluster.lost()).as("invalidaciones perdidas").isPositive();
+        assertThat(result.staleEntriesRejected()).as("ETags viejos descartados por versión").isPositive();
+        assertThat(result.violations()).isZero();
+        assertThat(result.notModified()).as("304 servidos desde la caché local").isPositive();
+    }
+
+    @Test
+    void cartReadsSeeOwnWritesWithoutInvalidationBus() {
+        List<CacheInvalidationBus> isolated = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            isolated.add(new CacheInvalidationBus(CacheInvalidationTransport.NONE));
+        }
+
+        Result result = simulateCartTraffic(isolated, new Random(42), () -> {
+        });
+
+        assertThat(result.staleEntriesRejected()).as("ETags viejos descartados por versión").isPositive();
+        assertThat(result.violations()).isZero();
+        assertThat(result.notModified()).as("304 servidos desde la caché local").isPositive();
+    }
+
+    @Test
+    void cachedETagIsRejectedOnceCartVersionOrCartChanges() {
+        CartETagCache cache = new CartETagCache(new CacheInvalidationBus(CacheInvalidationTransport.NONE), 1000);
+        UUID cartId = UUID.randomUUID();
+
+        cache.put("user-1", "etag-v3", new CartVersionDTO(cartId, 3L), cache.readToken());
+        assertThat(cache.get("user-1", new CartVersionDTO(cartId, 3L))).isEqualTo("etag-v3");
+
+        // Otra instancia confirmó un cambio y su invalidación no llegó
+        assertThat(cache.get("user-1", new CartVersionDTO(cartId, 4L))).isNull();
+        assertThat(cache.contains("user-1")).isFalse();
+
+        // Carrito pagado y reemplazado por uno nuevo (o sin carrito activo)
+        cache.put("user-1", "etag-v4", new CartVersionDTO(cartId, 4L), cache.readToken());
+        assertThat(cache.get("user-1", new CartVersionDTO(UUID.randomUUID(), 4L))).isNull();
+        cache.put("user-1", "etag-v4", new CartVersionDTO(cartId, 4L), cache.readToken());
+        assertThat(cache.get("user-1", null)).isNull();
+    }
+
+    @Test
+    void readStartedBeforeRemoteInvalidationIsNotCached() {
+        List<CacheInvalidationBus> buses = memoryCluster();
+        CartETagCache instanceA = new CartETagCache(buses.get(0), 1000);
+        CartETagCache instanceB = new CartETagCache(buses.get(1), 1000);
+        CartVersionDTO version = new CartVersionDTO(UUID.randomUUID(), 1L);
+
+        // B empieza a leer el carrito, A confirma un cambio y B termina su lectura con datos viejos
+        long readToken = instanceB.readToken();
+        instanceA.invalidate("user-1");
+        instanceB.put("user-1", "etag-anterior", version, readToken);
+
+        assertThat(instanceB.contains("user-1")).isFalse();
+
+        instanceB.put("user-1", "etag-nuevo", version, instanceB.readToken());
+        assertThat(instanceB.get("user-1", version)).isEqualTo("etag-nuevo");
+    }
+
+    @Test
+    void catalogLookupsWaitForEventsAppliedByAnotherInstance() throws Exception {
+        // El catálogo es estático (uno por JVM): B es el consumidor local y A solo publica por el bus
+        List<CacheInvalidationBus> buses = memoryCluster();
+        CacheInvalidationBus instanceA = buses.get(0);
+        CacheInvalidationBus busB = buses.get(1);
+        ServiceKafkaConsumer instanceB = catalogInstance(busB);
+        ServiceKafkaConsumer.clearServicesList();
+        UUID serviceId = UUID.randomUUID();
+
+        // B difunde su invalidación después de registrar el evento aplicado
+        deliver(instanceB, serviceId, 100, timestamp(1));
+        awaitCondition(() -> busB.getPublishedCount() == 1);
+
+        // A ya aplicó un evento que B todavía no recibió; uno más viejo no marca nada
+        instanceA.publish(CacheInvalidationType.CATALOG, serviceId.toString(), timestamp(1).toEpochMilli());
+        assertThat(ServiceKafkaConsumer.getStaleServicesCount()).isZero();
+        instanceA.publish(CacheInvalidationType.CATALOG, serviceId.toString(), timestamp(2).toEpochMilli());
+        assertThat(ServiceKafkaConsumer.getStaleServicesCount()).isEqualTo(1);
+
+        CompletableFuture<Boolean> lookupOnB = CompletableFuture.supplyAsync(
+                () -> ServiceKafkaConsumer.awaitCatchUp(serviceId, Duration.ofSeconds(5)));
+        Thread.sleep(100);
+        assertThat(lookupOnB).isNotDone();
+
+        // Al llegar el evento a B, la búsqueda continúa con el precio nuevo
+        deliver(instanceB, serviceId, 200, timestamp(2));
+        assertThat(lookupOnB.get(5, TimeUnit.SECONDS)).isTrue();
+        awaitCondition(() -> ServiceKafkaConsumer.getStaleServicesCount() == 0);
+        assertThat(ServiceKafkaConsumer.getServiceById(serviceId).getPrice()).isEqualByComparingTo("200");
+    }
+
+    @Test
+    void catalogLookupGivesUpAfterTimeoutOnlyOnce() {
+        List<CacheInvalidationBus> buses = memoryCluster();
+        catalogInstance(buses.get(1));
+        ServiceKafkaConsumer.clearServicesList();
+        UUID serviceId = UUID.randomUUID();
+
+        // El evento nunca llega a esta instancia: la primera búsqueda espera el plazo, las siguientes no
+        buses.get(0).publish(CacheInvalidationType.CATALOG, serviceId.toString(), timestamp(1).toEpochMilli());
+        assertThat(ServiceKafkaConsumer.awaitCatchUp(serviceId, Duration.ofMillis(50))).isFalse();
+        assertThat(ServiceKafkaConsumer.awaitCatchUp(serviceId, Duration.ofMillis(50))).isTrue();
+    }
+
+    @Test
+    void clearingTheCatalogReleasesPendingLookups() throws Exception {
+        List<CacheInvalidationBus> buses = memoryCluster();
+        catalogInstance(buses.get(1));
+        ServiceKafkaConsumer.clearServicesList();
+        UUID serviceId = UUID.randomUUID();
+
+        buses.get(0).publish(CacheInvalidationType.CATALOG, serviceId.toString(), timestamp(1).toEpochMilli());
+        CompletableFuture<Boolean> lookup = CompletableFuture.supplyAsync(
+                () -> ServiceKafkaConsumer.awaitCatchUp(serviceId, Duration.ofSeconds(30)));
+        Thread.sleep(100);
+        assertThat(lookup).isNotDone();
+
+        ServiceKafkaConsumer.clearServicesList();
+        assertThat(lookup.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ServiceKafkaConsumer.getStaleServicesCount()).isZero();
+    }
+
+    /**
+     * @param afterOperation se ejecuta después de cada operación (entrega de invalidaciones pendientes)
+     */
+    private Result simulateCartTraffic(List<CacheInvalidationBus> buses, Random random, Runnable afterOperation) {
+        List<CartETagCache> instances = new ArrayList<>();
+        for (CacheInvalidationBus bus : buses) {
+            instances.add(new CartETagCache(bus, 100_000));
+        }
+
+        // Base de datos compartida (carrito activo y versión de su contenido) y ETag que conoce cada cliente
+        Map<String, CartVersionDTO> database = new HashMap<>();
+        Map<String, String> clientETags = new HashMap<>();
+        int reads = 0;
+        int notModified = 0;
+        int staleEntriesRejected = 0;
+        int violations = 0;
+
+        for (int op = 0; op < OPERATIONS; op++, afterOperation.run()) {
+            String userId = "user-" + random.nextInt(USERS);
+            CartETagCache instance = instances.get(random.nextInt(instances.size()));
+            CartVersionDTO current = database.computeIfAbsent(userId, id -> new CartVersionDTO(UUID.randomUUID(), 0L));
+
+            double action = random.nextDouble();
+            if (action < CHECKOUT_RATIO) {
+                // Checkout: el siguiente carrito activo es otro
+                database.put(userId, new CartVersionDTO(UUID.randomUUID(), 0L));
+                instance.invalidate(userId);
+                continue;
+            }
+            if (action < WRITE_RATIO) {
+                database.put(userId, new CartVersionDTO(current.getCartId(), current.getContentVersion() + 1));
+                instance.invalidate(userId);
+                continue;
+            }
+
+            // GET /api/cart como lo resuelven CartController y CartService.getKnownCartETag
+            reads++;
+            String clientETag = clientETags.get(userId);
+            String knownETag = null;
+            if (clientETag != null && instance.contains(userId)) {
+                knownETag = instance.get(userId, current);
+                if (knownETag == null) {
+                    staleEntriesRejected++;
+                }
+            }
+            String seen;
+            if (knownETag != null && knownETag.equals(clientETag)) {
+                notModified++;
+                seen = clientETag;
+            } else {
+                long readToken = instance.readToken();
+                seen = content(current);
+                instance.put(userId, seen, current, readToken);
+            }
+            clientETags.put(userId, seen);
+
+            if (!seen.equals(content(database.get(userId)))) {
+                violations++;
+            }
+        }
+        return new Result(reads, notModified, staleEntriesRejected, violations);
+    }
+
+    private static String content(CartVersionDTO version) {
+        return version.getCartId() + ":" + version.getContentVersion();
+    }
+
+    private static List<CacheInvalidationBus> memoryCluster() {
+        List<Consumer<CacheInvalidationDTO>> cluster = new CopyOnWriteArrayList<>();
+        List<CacheInvalidationBus> buses = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            buses.add(new CacheInvalidationBus(new InMemoryCacheInvalidationTransport(cluster)));
+        }
+        return buses;
+    }
+
+    private ServiceKafkaConsumer catalogInstance(CacheInvalidationBus bus) {
+        OrderedLaneExecutor laneExecutor = new OrderedLaneExecutor(1, 16);
+        laneExecutors.add(laneExecutor);
+        CatalogSearchIndex searchIndex = new CatalogSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "maxPrefixExpansions", 64);
+
+        ServiceKafkaConsumer instance = new ServiceKafkaConsumer(mock(CartService.class),
+                mock(KafkaMessagingService.class), OBJECT_MAPPER, mock(CatalogEventPublisher.class),
+                mock(CatalogResponseCache.class), searchIndex,
+                new CatalogFacetIndex(new BigDecimal[] { BigDecimal.valueOf(10_000) }), laneExecutor,
+                new ServiceEventFilter(new SimpleMeterRegistry()), mock(FailedEventRouter.class), bus,
+                new CatalogCatchUpTracker());
+        ReflectionTestUtils.setField(instance, "maxCatalogSize", DataSize.ofMegabytes(16));
+        ReflectionTestUtils.setField(instance, "lowWaterRatio", 0.9);
+        ReflectionTestUtils.setField(instance, "pricingMode", CartPricingMode.LAZY);
+        ReflectionTestUtils.invokeMethod(instance, "subscribeToInvalidations");
+        return instance;
+    }
+
+    private static void deliver(ServiceKafkaConsumer instance, UUID serviceId, long price, Instant timestamp)
+            throws Exception {
+        ServiceResponseDTO event = ServiceResponseDTO.builder()
+                .serviceId(serviceId.toString())
+                .title("Servicio de prueba")
+                .price(BigDecimal.valueOf(price))
+                .eventType("UPDATED")
+                .timestamp(timestamp.toString())
+                .isActive(true)
+                .build();
+        instance.serviceResponse().accept(MessageBuilder
+                .withPayload(OBJECT_MAPPER.writeValueAsString(event))
+                .build());
+    }
+
+    private static Instant timestamp(int second) {
+        return Instant.ofEpochSecond(1_750_000_000L + second);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condición cumplida a tiempo").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Transporte que retiene las invalidaciones y las entrega más tarde, en
+     * cualquier orden, o las pierde
+     */
+    private static final class DelayedCluster {
+
+        private static final double DELIVERY_RATIO = 0.3;
+        private static final double LOSS_RATIO = 0.1;
+
+        private final Random random;
+        private final List<Consumer<CacheInvalidationDTO>> receivers = new ArrayList<>();
+        private final List<CacheInvalidationDTO> pending = new ArrayList<>();
+        private int delivered;
+        private int lost;
+
+        DelayedCluster(Random random) {
+            this.random = random;
+        }
+
+        CacheInvalidationTransport transport() {
+            return new CacheInvalidationTransport() {
+                @Override
+                public void send(CacheInvalidationDTO invalidation) {
+                    pending.add(invalidation);
+                }
+
+                @Override
+                public void connect(Consumer<CacheInvalidationDTO> receiver) {
+                    receivers.add(receiver);
+                }
+            };
+        }
+
+        void step() {
+            if (pending.isEmpty() || random.nextDouble() >= DELIVERY_RATIO) {
+                return;
+            }
+            CacheInvalidationDTO invalidation = pending.remove(random.nextInt(pending.size()));
+            if (random.nextDouble() < LOSS_RATIO) {
+                lost++;
+                return;
+            }
+            delivered++;
+            receivers.forEach(receiver -> receiver.accept(invalidation));
+        }
+
+        int delivered() {
+            return delivered;
+        }
+
+        int lost() {
+            return lost;
+        }
+    }
+
+    private record Result(int reads, int notModified, int staleEntriesRejected, int violations) {
+    }
+}
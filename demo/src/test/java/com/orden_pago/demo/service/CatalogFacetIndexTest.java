@@ -0,0 +1,87 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.CatalogFacetsDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conteos incrementales de las facetas del catálogo ante cambios, bajas y
+ * filtros combinados
+ */
+class CatalogFacetIndexTest {
+
+    private final CatalogFacetIndex facets = new CatalogFacetIndex(
+            new BigDecimal[] { new BigDecimal("100"), new BigDecimal("1000") });
+
+    @Test
+    void upsertMovesServiceWhenCategoryOrCountryChanges() {
+        ServiceResponseDTO service = service("Hogar", "Chile", "50");
+        facets.upsert(service);
+        facets.upsert(service("Hogar", "Chile", "500"));
+
+        service.setCategoryName("Educación");
+        service.setCountryName("Perú");
+        facets.upsert(service);
+
+        CatalogFacetsDTO result = facets.getFacets(null, null, null);
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getCategories()).containsExactly(Map.entry("Educación", 1), Map.entry("Hogar", 1));
+        assertThat(result.getCountries()).containsExactly(Map.entry("Chile", 1), Map.entry("Perú", 1));
+        assertThat(facets.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removeClearsCountsAndReusesTheSlot() {
+        ServiceResponseDTO removed = service("Hogar", "Chile", "50");
+        facets.upsert(removed);
+        facets.upsert(service("Hogar", null, null));
+
+        facets.remove(removed.getServiceId());
+        facets.remove(removed.getServiceId());
+
+        CatalogFacetsDTO result = facets.getFacets(null, null, null);
+        assertThat(result.getTotal()).isEqualTo(1);
+        assertThat(result.getCountries()).containsExactly(Map.entry(CatalogFacetIndex.NO_COUNTRY, 1));
+        assertThat(result.getPriceRanges()).containsExactly(Map.entry(CatalogFacetIndex.NO_PRICE, 1));
+
+        facets.upsert(service("Educación", "Perú", "2000"));
+        assertThat(facets.getFacets(null, null, null).getTotal()).isEqualTo(2);
+        assertThat(facets.getFacets(null, null, null).getPriceRanges())
+                .containsExactly(Map.entry("1000+", 1), Map.entry(CatalogFacetIndex.NO_PRICE, 1));
+    }
+
+    @Test
+    void eachFacetIsCountedUnderTheOtherFilters() {
+        facets.upsert(service("Hogar", "Chile", "50"));
+        facets.upsert(service("Hogar", "Chile", "500"));
+        facets.upsert(service("Hogar", "Perú", "50"));
+        facets.upsert(service("Educación", "Chile", "50"));
+
+        CatalogFacetsDTO result = facets.getFacets("Hogar", "Chile", "0-100");
+
+        assertThat(result.getTotal()).isEqualTo(1);
+        // Categorías con país y precio filtrados; países con categoría y precio; precios con categoría y país
+        assertThat(result.getCategories()).containsExactly(Map.entry("Educación", 1), Map.entry("Hogar", 1));
+        assertThat(result.getCountries()).containsExactly(Map.entry("Chile", 1), Map.entry("Perú", 1));
+        assertThat(result.getPriceRanges()).containsExactly(Map.entry("0-100", 1), Map.entry("100-1000", 1));
+
+        assertThat(facets.getFacets("Inexistente", null, null).getTotal()).isZero();
+    }
+
+    private static ServiceResponseDTO service(String category, String country, String price) {
+        return ServiceResponseDTO.builder()
+                .id(UUID.randomUUID())
+                .title("Servicio")
+                .categoryName(category)
+                .countryName(country)
+                .price(price != null ? new BigDecimal(price) : null)
+                .isActive(true)
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.orden_pago.demo.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Negociación de la codificación del catálogo según Accept-Encoding
+ */
+class CatalogResponseCacheTest {
+
+    @ParameterizedTest(name = "[{0}] -> gzip={1}")
+    @CsvSource(delimiter = '|', nullValues = "NULL", value = {
+            "NULL                          | false",
+            "''                            | false",
+            "gzip                          | true",
+            "GZIP                          | true",
+            "deflate, gzip;q=0.8           | true",
+            "x-gzip                        | true",
+            "gzip;q=0                      | false",
+            "gzip; q=0.000                 | false",
+            "identity                      | false",
+            "br, deflate                   | false",
+            "*                             | true",
+            "*;q=0                         | false",
+            "gzip;q=0, *                   | false",
+            "gzip;q=0.5, identity          | false",
+            "gzip, identity;q=0.5          | true",
+            "gzip;q=0.5, identity;q=0.5    | true",
+            "notgzip                       | false",
+            "gzip;q=abc                    | false"
+    })
+    void negotiatesGzipFromQualityValues(String acceptEncoding, boolean expected) {
+        assertThat(CatalogResponseCache.acceptsGzip(acceptEncoding)).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,109 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Normalización de textos, expansión de prefijos, bajas y orden de los
+ * resultados del índice de búsqueda del catálogo
+ */
+class CatalogSearchIndexTest {
+
+    private final CatalogSearchIndex index = new CatalogSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 64);
+    }
+
+    @Test
+    void accentedAndPlainQueriesFindTheSameService() {
+        ServiceResponseDTO music = service("Clases de Música", "Educación", "Guitarra y canto", 4.0);
+        index.index(music);
+
+        assertThat(index.search("musica")).containsExactly(music.getServiceId());
+        assertThat(index.search("MÚSICA")).containsExactly(music.getServiceId());
+        assertThat(index.search("educacion")).containsExactly(music.getServiceId());
+    }
+
+    @Test
+    void dropsStopwordsAndPluralEndings() {
+        assertThat(CatalogSearchIndex.tokenize("Las clases de piano para niños"))
+                .containsExactly("clase", "piano", "nino");
+        // Palabras de tres letras o menos conservan la "s"
+        assertThat(CatalogSearchIndex.tokenize("gas")).containsExactly("gas");
+
+        ServiceResponseDTO piano = service("Clases de piano", "Educación", null, 4.0);
+        index.index(piano);
+
+        assertThat(index.search("clase del piano")).containsExactly(piano.getServiceId());
+        assertThat(index.search("de la")).isEmpty();
+    }
+
+    @Test
+    void prefixExpansionIsCappedInTermOrder() {
+        ServiceResponseDTO tornillo = service("Tornillo", null, null, 3.0);
+        ServiceResponseDTO torno = service("Torno", null, null, 3.0);
+        ServiceResponseDTO torre = service("Torre", null, null, 3.0);
+        index.index(tornillo);
+        index.index(torno);
+        index.index(torre);
+
+        assertThat(index.search("tor")).containsExactlyInAnyOrder(
+                tornillo.getServiceId(), torno.getServiceId(), torre.getServiceId());
+
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 2);
+        assertThat(index.search("tor")).containsExactlyInAnyOrder(tornillo.getServiceId(), torno.getServiceId());
+        // Un término exacto se encuentra aunque haya más expansiones que el límite
+        assertThat(index.search("torre")).containsExactly(torre.getServiceId());
+    }
+
+    @Test
+    void removeAndReindexDropOldTerms() {
+        ServiceResponseDTO service = service("Jardinería", "Hogar", "Poda de árboles", 4.0);
+        index.index(service);
+        assertThat(index.search("poda")).containsExactly(service.getServiceId());
+
+        service.setDescription("Corte de césped");
+        index.index(service);
+        assertThat(index.search("poda")).isEmpty();
+        assertThat(index.search("cesped")).containsExactly(service.getServiceId());
+
+        index.remove(service.getServiceId());
+        assertThat(index.search("jardineria")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void ranksByFieldWeightAndRating() {
+        ServiceResponseDTO inTitle = service("Plomería", "Hogar", null, 1.0);
+        ServiceResponseDTO inDescription = service("Reparaciones", "Hogar", "Incluye plomería", 5.0);
+        ServiceResponseDTO inTitleBetterRated = service("Plomería urgente", "Hogar", null, 5.0);
+        index.index(inDescription);
+        index.index(inTitle);
+        index.index(inTitleBetterRated);
+
+        // El título pesa 3 y la descripción 1; a igual coincidencia decide el rating
+        assertThat(index.search("plomeria")).containsExactly(
+                inTitleBetterRated.getServiceId(), inTitle.getServiceId(), inDescription.getServiceId());
+        // Todos los términos deben coincidir
+        assertThat(index.search("plomeria urgente")).containsExactly(inTitleBetterRated.getServiceId());
+    }
+
+    private static ServiceResponseDTO service(String title, String category, String description, double rating) {
+        return ServiceResponseDTO.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .categoryName(category)
+                .description(description)
+                .averageRating(rating)
+                .isActive(true)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.controller.PaymentController;
+import com.orden_pago.demo.dto.PaymentRequest;
+import com.orden_pago.demo.dto.PaymentResponse;
+import com.orden_pago.demo.dto.PriceChangeDTO;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.CartPricingMode;
+import com.orden_pago.demo.enums.PaymentMethod;
+import com.orden_pago.demo.model.Cart;
+import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.repository.ArchivedCartItemRepository;
+import com.orden_pago.demo.repository.ArchivedCartRepository;
+import com.orden_pago.demo.repository.ArchivedPaymentRepository;
+import com.orden_pago.demo.repository.CartItemRepository;
+import com.orden_pago.demo.repository.CartRepository;
+import com.orden_pago.demo.repository.PaymentRepository;
+import com.orden_pago.demo.service.kafka.KafkaMessagingService;
+import com.orden_pago.demo.service.kafka.ServiceEventFilter;
+import com.orden_pago.demo.service.kafka.ServiceKafkaConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Conciliación de precios en el checkout (modo lazy) de punta a punta desde
+ * PaymentController, con el marketplace simulado y el catálogo en memoria vacío
+ */
+class CheckoutPriceReconciliationTest {
+
+    private static final String USER_ID = "user-checkout";
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final CartItemRepository cartItemRepository = mock(CartItemRepository.class);
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final KafkaMessagingService marketplace = mock(KafkaMessagingService.class);
+    private final PaymentSimulationService paymentSimulationService = mock(PaymentSimulationService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final Cart cart = new Cart();
+    private PaymentController controller;
+
+    @BeforeEach
+    void setUp() {
+        ServiceKafkaConsumer.clearServicesList();
+
+        CartService cartService = new CartService(cartRepository, cartItemRepository,
+                mock(ArchivedCartRepository.class), mock(ArchivedCartItemRepository.class), mock(CartETagCache.class),
+                mock(CatalogSearchIndex.class), mock(CatalogFacetIndex.class), marketplace,
+                new ServiceEventFilter(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cartService, "refetchTimeout", Duration.ofMillis(200));
+
+        PaymentService paymentService = new PaymentService(paymentRepository, mock(ArchivedPaymentRepository.class),
+                cartRepository, cartService, paymentSimulationService, mock(PaymentStatusHub.class),
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(paymentService, "pricingMode", CartPricingMode.LAZY);
+        controller = new PaymentController(paymentService);
+
+        cart.setId(UUID.randomUUID());
+        cart.setUserId(USER_ID);
+        when(cartRepository.findById(cart.getId())).thenReturn(Optional.of(cart));
+        when(cartItemRepository.findByCartId(cart.getId())).thenAnswer(invocation -> List.copyOf(cart.getItems()));
+    }
+
+    @Test
+    void changedPriceStopsCheckoutWithConflictAndRepricesItem() {
+        CartItem item = addItem("Clases de guitarra", "100.00");
+        when(marketplace.requestServiceInfo(item.getServiceId()))
+                .thenReturn(CompletableFuture.completedFuture(service(item, "120.00")));
+
+        ResponseEntity<PaymentResponse> response = controller.simulatePayment(paymentRequest(), authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        PriceChangeDTO change = response.getBody().getPriceChanges().get(0);
+        assertThat(change.getServiceId()).isEqualTo(item.getServiceId());
+        assertThat(change.isVerified()).isTrue();
+        assertThat(change.getPreviousPrice()).isEqualByComparingTo("100.00");
+        assertThat(change.getCurrentPrice()).isEqualByComparingTo("120.00");
+        assertThat(change.getCurrentPriceEventAt()).isNotNull();
+        assertThat(item.getServicePrice()).isEqualByComparingTo("120.00");
+        verify(paymentSimulationService, never()).simulatePayment(any());
+    }
+
+    @Test
+    void unverifiableItemFailsCheckoutWithServiceUnavailableAndIsListed() {
+        CartItem unchanged = addItem("Plomería", "50.00");
+        CartItem unanswered = addItem("Electricista", "80.00");
+        when(marketplace.requestServiceInfo(unchanged.getServiceId()))
+                .thenReturn(CompletableFuture.completedFuture(service(unchanged, "50")));
+        when(marketplace.requestServiceInfo(unanswered.getServiceId())).thenReturn(new CompletableFuture<>());
+
+        ResponseEntity<PaymentResponse> response = controller.simulatePayment(paymentRequest(), authentication());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getBody().getPriceChanges())
+                .singleElement()
+                .satisfies(change -> {
+                    assertThat(change.getServiceId()).isEqualTo(unanswered.getServiceId());
+                    assertThat(change.getServiceName()).isEqualTo("Electricista");
+                    assertThat(change.isVerified()).isFalse();
+                    assertThat(change.getCurrentPrice()).isNull();
+                });
+        verify(paymentRepository, never()).save(any());
+        verify(paymentSimulationService, never()).simulatePayment(any());
+    }
+
+    @Test
+    void pricesAreResolvedBeforeTheTransactionOpens() {
+        CartItem item = addItem("Jardinería", "30.00");
+        when(marketplace.requestServiceInfo(item.getServiceId()))
+                .thenReturn(CompletableFuture.completedFuture(service(item, "35.00")));
+
+        controller.simulatePayment(paymentRequest(), authentication());
+
+        InOrder order = inOrder(marketplace, transactionManager);
+        order.verify(marketplace).requestServiceInfo(item.getServiceId());
+        order.verify(transactionManager).getTransaction(any());
+    }
+
+    private CartItem addItem(String name, String price) {
+        CartItem item = new CartItem();
+        item.setId(UUID.randomUUID());
+        item.setServiceId(UUID.randomUUID());
+        item.setServiceName(name);
+        item.setServicePrice(new BigDecimal(price));
+        item.setQuantity(1);
+        cart.addItem(item);
+        return item;
+    }
+
+    private static ServiceResponseDTO service(CartItem item, String price) {
+        return ServiceResponseDTO.builder()
+                .serviceId(item.getServiceId().toString())
+                .title(item.getServiceName())
+                .price(new BigDecimal(price))
+                .eventType("UPDATED")
+                .timestamp("2026-05-01T10:00:00Z")
+                .isActive(true)
+                .build();
+    }
+
+    private PaymentRequest paymentRequest() {
+        PaymentRequest request = new PaymentRequest();
+        request.setCartId(cart.getId());
+        request.setMethod(PaymentMethod.values()[0]);
+        request.setCardNumber("4111111111111111");
+        request.setCardHolderName("Cliente de Prueba");
+        return request;
+    }
+
+    private static Authentication authentication() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .claim("sub", USER_ID)
+                .build();
+        return new JwtAuthenticationToken(jwt);
+    }
+}
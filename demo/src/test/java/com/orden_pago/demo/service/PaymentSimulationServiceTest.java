@@ -0,0 +1,41 @@
+package com.orden_pago.demo.service;
+
+import com.orden_pago.demo.dto.PaymentRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Métricas de la pasarela simulada: los pagos del calentamiento no cuentan
+ */
+class PaymentSimulationServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PaymentSimulationService service = new PaymentSimulationService(new TransactionIdGenerator(1),
+            meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "successRate", 1.0);
+        ReflectionTestUtils.setField(service, "minDelay", 0);
+        ReflectionTestUtils.setField(service, "maxDelay", 1);
+    }
+
+    @Test
+    void paymentsRunWithoutMetricsAreNotRecorded() {
+        PaymentRequest request = new PaymentRequest();
+        request.setCartId(UUID.randomUUID());
+
+        service.withoutMetrics(() -> service.simulatePayment(request));
+        assertThat(meterRegistry.get("payment.gateway.latency").timer().count()).isZero();
+
+        service.simulatePayment(request);
+        assertThat(meterRegistry.get("payment.gateway.latency").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.gateway.in-flight").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package com.orden_pago.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Prueba de estrés de unicidad y monotonía del generador de IDs de transacción
+ */
+class TransactionIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndNodes() throws Exception {
+        TransactionIdGenerator nodeA = new TransactionIdGenerator(1);
+        TransactionIdGenerator nodeB = new TransactionIdGenerator(2);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                TransactionIdGenerator generator = t % 2 == 0 ? nodeA : nodeB;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    String previous = "";
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        String id = generator.nextTransactionId();
+                        // Cada hilo debe ver IDs estrictamente crecientes de su nodo
+                        if (id.compareTo(previous) <= 0 || !ids.add(id)) {
+                            return false;
+                        }
+                        previous = id;
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void encodesNodeAndFixedWidth() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(TransactionIdGenerator.MAX_NODE_ID);
+
+        long id = generator.nextId();
+        String encoded = generator.nextTransactionId();
+
+        assertThat(id).isPositive();
+        assertThat(TransactionIdGenerator.nodeOf(id)).isEqualTo(TransactionIdGenerator.MAX_NODE_ID);
+        assertThat(encoded).matches("TXN-[0-9A-HJKMNP-TV-Z]{13}");
+    }
+
+    @Test
+    void stopsIssuingIdsAfterLeaseExpiryUntilRenewed() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(5);
+        generator.setLeaseExpiry(System.currentTimeMillis() - 1);
+
+        assertThatThrownBy(generator::nextTransactionId).isInstanceOf(IllegalStateException.class);
+
+        generator.setLeaseExpiry(System.currentTimeMillis() + 60_000);
+        assertThat(TransactionIdGenerator.nodeOf(generator.nextId())).isEqualTo(5);
+    }
+}
@@ -0,0 +1,77 @@
+package com.orden_pago.demo.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reclamo de nodos del generador de IDs de transacción sobre una base
+ * compartida: instancias que compiten por el mismo nodo obtienen nodos
+ * distintos y un arriendo vencido puede ser tomado por otra instancia
+ */
+class TransactionNodeLeasesTest {
+
+    private static final int INSTANCES = 32;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:leases-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void concurrentClaimsOnSameStartNodeGetDistinctNodes() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(INSTANCES);
+        try {
+            List<Future<Integer>> claims = new ArrayList<>();
+            for (int i = 0; i < INSTANCES; i++) {
+                TransactionNodeLeases leases = new TransactionNodeLeases(jdbcTemplate, "instance-" + i,
+                        Duration.ofMinutes(1));
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    return leases.claimFirstFree(7);
+                }));
+            }
+            start.countDown();
+
+            List<Integer> nodes = new ArrayList<>();
+            for (Future<Integer> claim : claims) {
+                nodes.add(claim.get());
+            }
+            assertThat(nodes).doesNotHaveDuplicates();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeaseCanBeTakenOverAndOldOwnerLosesIt() {
+        TransactionNodeLeases stalled = new TransactionNodeLeases(jdbcTemplate, "stalled", Duration.ofMillis(-1));
+        TransactionNodeLeases other = new TransactionNodeLeases(jdbcTemplate, "other", Duration.ofMinutes(1));
+
+        assertThat(stalled.tryClaim(3)).isTrue();
+        assertThat(other.tryClaim(3)).isTrue();
+
+        assertThat(stalled.renew(3)).isFalse();
+        assertThat(stalled.tryClaim(3)).isFalse();
+        assertThat(other.renew(3)).isTrue();
+    }
+}
@@ -0,0 +1,64 @@
+package com.orden_pago.demo.service.kafka;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Atraso del consumidor del catálogo a partir de las particiones asignadas y
+ * de los registros procesados
+ */
+class CatalogCatchUpTrackerTest {
+
+    private static final String TOPIC = "service-response-topic";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+
+    private final CatalogCatchUpTracker tracker = new CatalogCatchUpTracker();
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @Test
+    void caughtUpOnceRecordsPendingAtAssignmentAreProcessed() {
+        assertThat(tracker.isCaughtUp()).as("sin particiones asignadas").isFalse();
+
+        consumer.assign(List.of(P0, P1));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        consumer.updateEndOffsets(Map.of(P0, 5L, P1, 0L));
+        consumer.seek(P0, 3);
+        tracker.onPartitionsAssigned(CatalogCatchUpTracker.BINDING, consumer, List.of(P0, P1), true);
+
+        assertThat(tracker.getLag()).isEqualTo(2);
+        assertThat(tracker.isCaughtUp()).isFalse();
+
+        // Los carriles confirman fuera de orden; lo que llega después de asignar no cuenta
+        tracker.recordProcessed(TOPIC, 0, 4);
+        tracker.recordProcessed(TOPIC, 0, 7);
+        assertThat(tracker.isCaughtUp()).isFalse();
+        tracker.recordProcessed(TOPIC, 0, 3);
+        assertThat(tracker.isCaughtUp()).isTrue();
+    }
+
+    @Test
+    void ignoresOtherBindingsAndRevokedPartitions() {
+        consumer.assign(List.of(P0));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L));
+        consumer.updateEndOffsets(Map.of(P0, 1L));
+
+        tracker.onPartitionsAssigned("cacheInvalidation-in-0", consumer, List.of(P0), true);
+        assertThat(tracker.isCaughtUp()).isFalse();
+        assertThat(tracker.getLag()).isZero();
+
+        tracker.onPartitionsAssigned(CatalogCatchUpTracker.BINDING, consumer, List.of(P0), true);
+        assertThat(tracker.getLag()).isEqualTo(1);
+
+        tracker.onPartitionsRevokedBeforeCommit(CatalogCatchUpTracker.BINDING, consumer, List.of(P0));
+        assertThat(tracker.getLag()).isZero();
+        assertThat(tracker.isCaughtUp()).isFalse();
+    }
+}
@@ -0,0 +1,185 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Codificación, índice, compactación y orden del almacén compacto del catálogo
+ */
+class CompactCatalogStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private final CompactCatalogStore store = new CompactCatalogStore(SEGMENT_SIZE);
+
+    @Test
+    void roundTripsEveryField() {
+        ServiceResponseDTO full = ServiceResponseDTO.builder()
+                .serviceId("5f0c2b8e-1d4a-4c7e-9f3b-8a6d2e1c0b9a")
+                .id(UUID.fromString("5f0c2b8e-1d4a-4c7e-9f3b-8a6d2e1c0b9a"))
+                .title("Reparación de electrodomésticos")
+                .description("Técnico certificado — visita incluida")
+                .price(new BigDecimal("-1234567890123456789012345.6789"))
+                .averageRating(4.75)
+                .eventType("UPDATED")
+                .timestamp("2026-03-01T12:00:00Z")
+                .userId("user-42")
+                .categoryId(UUID.randomUUID())
+                .categoryName("Hogar")
+                .statusId(UUID.randomUUID())
+                .statusName("ACTIVE")
+                .countryId(UUID.randomUUID())
+                .countryName("Perú")
+                .countryCode("PE")
+                .primaryImageUrl("https://cdn.example.com/img/1.png")
+                .isActive(true)
+                .build();
+
+        store.put(full);
+
+        assertThat(store.get(full.getServiceId())).usingRecursiveComparison().isEqualTo(full);
+    }
+
+    @Test
+    void roundTripsNullsAndNonUuidServiceId() {
+        UUID id = UUID.randomUUID();
+        ServiceResponseDTO sparse = ServiceResponseDTO.builder()
+                .serviceId("svc-externo-001")
+                .id(id)
+                .isActive(false)
+                .build();
+
+        store.put(sparse);
+
+        ServiceResponseDTO decoded = store.get(id);
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(sparse);
+        assertThat(decoded.getServiceIdAsString()).isEqualTo("svc-externo-001");
+        assertThat(decoded.getPrice()).isNull();
+        assertThat(decoded.getAverageRating()).isNull();
+        assertThat(decoded.getCategoryName()).isNull();
+    }
+
+    @Test
+    void roundTripsBigDecimalScalesAndNonLatinText() {
+        List<BigDecimal> prices = List.of(
+                new BigDecimal("1E+5"), // escala negativa
+                new BigDecimal("-0.000000000000000000000000000000000000001"), // escala grande
+                new BigDecimal("99999999999999999999999999999999999999.99"),
+                BigDecimal.ZERO,
+                new BigDecimal("-7"));
+        List<String> titles = List.of("日本語のサービス", "Услуга сантехника", "خدمة التنظيف", "🔧 Plomería 24/7",
+                "Ελληνικά");
+
+        for (int i = 0; i < prices.size(); i++) {
+            ServiceResponseDTO service = service(UUID.randomUUID(), titles.get(i), prices.get(i));
+            store.put(service);
+
+            ServiceResponseDTO decoded = store.get(service.getServiceId());
+            assertThat(decoded.getPrice()).isEqualTo(prices.get(i));
+            assertThat(decoded.getPrice().scale()).isEqualTo(prices.get(i).scale());
+            assertThat(decoded.getTitle()).isEqualTo(titles.get(i));
+        }
+    }
+
+    @Test
+    void survivesRehashAndCompactionThroughUpdateAndRemoveCycles() {
+        Map<UUID, ServiceResponseDTO> expected = new HashMap<>();
+        List<UUID> keys = new ArrayList<>();
+        // Más de 0,6 * 1024 claves: el índice crece
+        for (int i = 0; i < 3000; i++) {
+            UUID key = UUID.randomUUID();
+            keys.add(key);
+            ServiceResponseDTO service = service(key, "Servicio " + i, BigDecimal.valueOf(i, 2));
+            store.put(service);
+            expected.put(key, service);
+        }
+
+        // Actualizaciones y bajas repetidas: espacio muerto (compactación) y tombstones (rehash del mismo tamaño)
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < keys.size(); i++) {
+                UUID key = keys.get(i);
+                if (i % 3 == round % 3) {
+                    store.remove(key);
+                    expected.remove(key);
+                } else {
+                    ServiceResponseDTO service = service(key, "Servicio " + i + " v" + round,
+                            BigDecimal.valueOf(i * 10L + round, 2));
+                    store.put(service);
+                    expected.put(key, service);
+                }
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(expected.size());
+        for (UUID key : keys) {
+            ServiceResponseDTO service = expected.get(key);
+            if (service == null) {
+                assertThat(store.contains(key)).isFalse();
+                assertThat(store.get(key)).isNull();
+            } else {
+                assertThat(store.peek(key)).usingRecursiveComparison().isEqualTo(service);
+            }
+        }
+        // Tras compactar no queda más espacio muerto que vivo
+        assertThat(store.getOffHeapBytes()).isLessThanOrEqualTo(2 * store.getWeight() + 2L * SEGMENT_SIZE);
+        assertThat(store.remove(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void getAllReturnsServicesInOrderOfLastWrite() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        store.put(service(a, "A", BigDecimal.ONE));
+        store.put(service(b, "B", BigDecimal.ONE));
+        store.put(service(c, "C", BigDecimal.ONE));
+        store.put(service(a, "A2", BigDecimal.TEN));
+        store.remove(b);
+
+        assertThat(store.getAll()).extracting(ServiceResponseDTO::getTitle).containsExactly("C", "A2");
+    }
+
+    @Test
+    void coldestFollowsLastAccessNotLastWrite() throws InterruptedException {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        store.put(service(a, "A", BigDecimal.ONE));
+        Thread.sleep(1);
+        store.put(service(b, "B", BigDecimal.ONE));
+        Thread.sleep(1);
+        store.put(service(c, "C", BigDecimal.ONE));
+        Thread.sleep(1);
+
+        // Leer A la vuelve la más reciente; actualizar B conserva su último acceso; peek no cuenta
+        store.get(a);
+        store.put(service(b, "B2", BigDecimal.TEN));
+        store.peek(c);
+
+        assertThat(store.coldest(1)).containsExactly(b);
+        assertThat(store.coldest(Long.MAX_VALUE)).containsExactly(b, c, a);
+        assertThat(store.coldest(0)).isEmpty();
+    }
+
+    private static ServiceResponseDTO service(UUID key, String title, BigDecimal price) {
+        return ServiceResponseDTO.builder()
+                .serviceId(key.toString())
+                .title(title)
+                .description("Descripción de " + title)
+                .price(price)
+                .averageRating(4.0)
+                .eventType("CREATED")
+                .categoryName("Hogar")
+                .isActive(true)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.service.kafka.FailedEventRouter.RetryTier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Enrutamiento de eventos fallidos por los escalones de backoff hasta el
+ * dead-letter topic, y de los reinyectados desde él
+ */
+class FailedEventRouterTest {
+
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final FailedEventRouter router = new FailedEventRouter(streamBridge);
+
+    @BeforeEach
+    void setUp() {
+        when(streamBridge.send(anyString(), any())).thenReturn(true);
+    }
+
+    @Test
+    void eachFailureMovesToTheNextTierAndThenToTheDeadLetterTopic() {
+        IllegalStateException error = new IllegalStateException("fallo");
+        long firstFailedAt = 0L;
+
+        for (RetryTier tier : RetryTier.values()) {
+            long before = System.currentTimeMillis();
+            router.routeFailure("{}", "svc-1", tier.attempt() - 1, false, firstFailedAt, error);
+
+            Message<?> retry = sent(tier.function() + "-out-0");
+            assertThat(header(retry, FailedEventRouter.ATTEMPT_HEADER)).isEqualTo(String.valueOf(tier.attempt()));
+            assertThat(Long.parseLong(header(retry, FailedEventRouter.DUE_AT_HEADER)))
+                    .isBetween(before + tier.delay().toMillis(), System.currentTimeMillis() + tier.delay().toMillis());
+            // El primer fallo se fija en el primer envío y viaja sin cambios por los escalones
+            long sentFirstFailedAt = Long.parseLong(header(retry, FailedEventRouter.FIRST_FAILED_AT_HEADER));
+            if (firstFailedAt == 0L) {
+                firstFailedAt = sentFirstFailedAt;
+            }
+            assertThat(sentFirstFailedAt).isEqualTo(firstFailedAt);
+        }
+
+        router.routeFailure("{}", "svc-1", RetryTier.values().length, false, firstFailedAt, error);
+        Message<?> deadLetter = sent(FailedEventRouter.DLT_BINDING);
+        assertThat(header(deadLetter, FailedEventRouter.EXCEPTION_MESSAGE_HEADER)).isEqualTo("fallo");
+        assertThat(header(deadLetter, FailedEventRouter.FIRST_FAILED_AT_HEADER)).isEqualTo(String.valueOf(firstFailedAt));
+        assertThat(router.getRetriedCount()).isEqualTo(RetryTier.values().length);
+        assertThat(router.getDeadLetteredCount()).isEqualTo(1);
+    }
+
+    @Test
+    void replayedEventThatFailsAgainGoesStraightBackToTheDeadLetterTopic() {
+        router.replay("{}", "svc-1", 42L);
+        Message<?> replay = sent(RetryTier.RETRY_1S.function() + "-out-0");
+        assertThat(header(replay, FailedEventRouter.REPLAYED_HEADER)).isEqualTo("true");
+
+        int attempt = Integer.parseInt(header(replay, FailedEventRouter.ATTEMPT_HEADER));
+        router.routeFailure("{}", "svc-1", attempt, true,
+                Long.parseLong(header(replay, FailedEventRouter.FIRST_FAILED_AT_HEADER)),
+                new IllegalStateException("otra vez"));
+
+        Message<?> deadLetter = sent(FailedEventRouter.DLT_BINDING);
+        assertThat(header(deadLetter, FailedEventRouter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(header(deadLetter, FailedEventRouter.FIRST_FAILED_AT_HEADER)).isEqualTo("42");
+        assertThat(header(deadLetter, FailedEventRouter.EXCEPTION_MESSAGE_HEADER)).isEqualTo("otra vez");
+        assertThat(router.getRetriedCount()).isZero();
+        assertThat(router.getReplayFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void awaitDueWaitsAtMostTheTierDelay() {
+        long start = System.nanoTime();
+        router.awaitDue(RetryTier.RETRY_1S, System.currentTimeMillis() + 60_000);
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(waitedMillis).isBetween(900L, 5_000L);
+
+        start = System.nanoTime();
+        router.awaitDue(RetryTier.RETRY_16S, System.currentTimeMillis() - 1);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(100L);
+    }
+
+    private Message<?> sent(String binding) {
+        ArgumentCaptor<Message<?>> message = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge).send(eq(binding), message.capture());
+        return message.getValue();
+    }
+
+    private static String header(Message<?> message, String name) {
+        return FailedEventRouter.headerAsString(message.getHeaders().get(name));
+    }
+}
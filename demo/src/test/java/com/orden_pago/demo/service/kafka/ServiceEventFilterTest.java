@@ -0,0 +1,90 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Huella de los campos del carrito y decisiones del filtro de eventos
+ */
+class ServiceEventFilterTest {
+
+    private final ServiceEventFilter filter = new ServiceEventFilter(new SimpleMeterRegistry());
+
+    @Test
+    void fingerprintIgnoresPriceScaleButNotContent() {
+        ServiceResponseDTO base = event("Plomería", new BigDecimal("10.50"));
+
+        assertThat(ServiceEventFilter.cartFingerprint(event("Plomería", new BigDecimal("10.5000"))))
+                .isEqualTo(ServiceEventFilter.cartFingerprint(base));
+        assertThat(ServiceEventFilter.cartFingerprint(event("Plomeria", new BigDecimal("10.50"))))
+                .isNotEqualTo(ServiceEventFilter.cartFingerprint(base));
+        assertThat(ServiceEventFilter.cartFingerprint(event("Plomería", new BigDecimal("10.51"))))
+                .isNotEqualTo(ServiceEventFilter.cartFingerprint(base));
+        assertThat(ServiceEventFilter.cartFingerprint(event("Plomería", null)))
+                .isNotEqualTo(ServiceEventFilter.cartFingerprint(base))
+                .isNotEqualTo(ServiceEventFilter.NO_CONTENT);
+    }
+
+    @Test
+    void fingerprintSeparatesAdjacentFields() {
+        ServiceResponseDTO a = event("ab", BigDecimal.ONE);
+        a.setDescription("c");
+        ServiceResponseDTO b = event("a", BigDecimal.ONE);
+        b.setDescription("bc");
+
+        assertThat(ServiceEventFilter.cartFingerprint(a)).isNotEqualTo(ServiceEventFilter.cartFingerprint(b));
+    }
+
+    @Test
+    void decidesFromStoredFingerprintAndTimestamp() {
+        ServiceResponseDTO first = event("Jardinería", new BigDecimal("25.00"));
+        first.setTimestamp("2026-01-01T10:00:00Z");
+        filter.recordApplied(first);
+
+        ServiceResponseDTO same = event("Jardinería", new BigDecimal("25"));
+        same.setTimestamp("2026-01-01T10:05:00Z");
+        assertThat(filter.evaluate(same, same)).isEqualTo(ServiceEventFilter.Decision.DUPLICATE);
+
+        ServiceResponseDTO repriced = event("Jardinería", new BigDecimal("30"));
+        repriced.setTimestamp("2026-01-01T10:06:00Z");
+        assertThat(filter.evaluate(repriced, first)).isEqualTo(ServiceEventFilter.Decision.APPLY);
+
+        ServiceResponseDTO old = event("Jardinería", new BigDecimal("20"));
+        old.setTimestamp("2026-01-01T09:00:00Z");
+        assertThat(filter.evaluate(old, first)).isEqualTo(ServiceEventFilter.Decision.STALE);
+
+        filter.forgetContent(first.getServiceId());
+        assertThat(filter.evaluate(same, same)).isEqualTo(ServiceEventFilter.Decision.APPLY);
+    }
+
+    @Test
+    void retryIsSupersededOnlyByEventsAppliedAfterItsFirstFailure() {
+        ServiceResponseDTO untimed = event("Pintura", new BigDecimal("40"));
+        long beforeApply = System.currentTimeMillis() - 1;
+        assertThat(filter.isSupersededRetry(untimed.getServiceId(), beforeApply)).isFalse();
+
+        filter.recordApplied(untimed);
+
+        assertThat(filter.isSupersededRetry(untimed.getServiceId(), beforeApply)).isTrue();
+        assertThat(filter.isSupersededRetry(untimed.getServiceId(), System.currentTimeMillis() + 1_000)).isFalse();
+        assertThat(filter.isSupersededRetry(untimed.getServiceId(), 0L)).isFalse();
+    }
+
+    private static ServiceResponseDTO event(String title, BigDecimal price) {
+        return ServiceResponseDTO.builder()
+                .serviceId("0b0f5a4e-6a1e-4f55-9a53-2d7c1f0e9b11")
+                .id(UUID.fromString("0b0f5a4e-6a1e-4f55-9a53-2d7c1f0e9b11"))
+                .title(title)
+                .description("Servicio a domicilio")
+                .price(price)
+                .averageRating(4.5)
+                .eventType("UPDATED")
+                .build();
+    }
+}
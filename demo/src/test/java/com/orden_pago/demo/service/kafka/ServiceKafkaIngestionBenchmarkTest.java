@@ -0,0 +1,257 @@
+package com.orden_pago.demo.service.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orden_pago.demo.dto.ServiceResponseDTO;
+import com.orden_pago.demo.enums.CartStatus;
+import com.orden_pago.demo.model.Cart;
+import com.orden_pago.demo.model.CartItem;
+import com.orden_pago.demo.repository.CartItemRepository;
+import com.orden_pago.demo.repository.CartRepository;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Benchmark de ingesta de eventos del marketplace con un broker Kafka embebido
+ *
+ * Publica una ráfaga de ServiceResponseDTO (JSON directo y envuelto en
+ * Base64) sobre un catálogo con carritos activos que referencian esos
+ * servicios, y mide eventos/s, la latencia de extremo a extremo (envío al
+ * broker hasta terminar processServiceResponse) y los bytes de heap
+ * asignados por evento (todos los hilos de la JVM, incluido el productor).
+ *
+ * Cada evento cambia el precio, así que todos pasan por la actualización de
+ * los carritos en la base de datos (el peor caso de un re-index).
+ *
+ * Se ejecuta solo con -Dbenchmark=true; el volumen se ajusta con
+ * -Dbenchmark.events, -Dbenchmark.services, -Dbenchmark.carts y
+ * -Dbenchmark.items-per-cart:
+ *
+ * mvn test -Dtest=ServiceKafkaIngestionBenchmarkTest -Dbenchmark=true -Dbenchmark.events=20000
+ */
+@SpringBootTest(properties = {
+        "spring.cloud.stream.default-binder=kafka",
+        "spring.cloud.stream.kafka.binder.brokers=${spring.embedded.kafka.brokers}",
+        "spring.cloud.stream.bindings.serviceResponse-in-0.group=benchmark",
+        "spring.cloud.stream.bindings.serviceResponseRetry1s-in-0.group=benchmark",
+        "spring.cloud.stream.bindings.serviceResponseRetry4s-in-0.group=benchmark",
+        "spring.cloud.stream.bindings.serviceResponseRetry16s-in-0.group=benchmark",
+        "eureka.client.enabled=false",
+        "transaction-id.node-id=0",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.orden_pago=WARN",
+        "cart.reaper.enabled=false",
+        "cart.archive.enabled=false"
+})
+@EmbeddedKafka(partitions = 3, topics = {
+        "service-response-topic", "service-response-retry-1s-topic", "service-response-retry-4s-topic",
+        "service-response-retry-16s-topic", "service-response-dlt-topic" })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ServiceKafkaIngestionBenchmarkTest {
+
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 20_000);
+    private static final int SERVICES = Integer.getInteger("benchmark.services", 2_000);
+    private static final int CARTS = Integer.getInteger("benchmark.carts", 500);
+    private static final int ITEMS_PER_CART = Integer.getInteger("benchmark.items-per-cart", 3);
+    private static final long TIMEOUT_MINUTES = 10;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @MockitoSpyBean
+    private KafkaMessagingService kafkaMessagingService;
+
+    // requestId -> instante (nanoTime) en que terminó el procesamiento del evento
+    private final Map<String, Long> completions = new ConcurrentHashMap<>();
+
+    @Test
+    void measureIngestionThroughput() throws Exception {
+        // handleServiceResponse se invoca al terminar processServiceResponse de cada evento con requestId
+        doAnswer(invocation -> {
+            ServiceResponseDTO response = invocation.getArgument(0);
+            completions.put(response.getRequestId(), System.nanoTime());
+            return null;
+        }).when(kafkaMessagingService).handleServiceResponse(any());
+
+        List<UUID> serviceIds = new ArrayList<>(SERVICES);
+        for (int i = 0; i < SERVICES; i++) {
+            serviceIds.add(UUID.nameUUIDFromBytes(("bench-service-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        createActiveCarts(serviceIds);
+
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class))) {
+
+            // Calentamiento: espera la asignación de particiones y carga las clases del camino caliente
+            run(producer, "warmup", serviceIds, Math.min(EVENTS, 2_000), false, 0);
+
+            Result json = run(producer, "json", serviceIds, EVENTS, false, 1);
+            Result base64 = run(producer, "base64", serviceIds, EVENTS, true, 2);
+
+            System.out.println();
+            System.out.printf("Ingesta de %,d eventos sobre %,d servicios y %,d carritos activos (%d items c/u)%n",
+                    EVENTS, SERVICES, CARTS, ITEMS_PER_CART);
+            System.out.printf("%-8s %12s %10s %10s %10s %10s %14s%n",
+                    "formato", "eventos/s", "p50 (ms)", "p95 (ms)", "p99 (ms)", "máx (ms)", "bytes/evento");
+            for (Result result : new Result[] { json, base64 }) {
+                System.out.printf("%-8s %,12.0f %10.1f %10.1f %10.1f %10.1f %,14d%n", result.name(),
+                        result.eventsPerSecond(), result.p50Millis(), result.p95Millis(), result.p99Millis(),
+                        result.maxMillis(), result.allocatedBytesPerEvent());
+            }
+
+            assertThat(json.eventsPerSecond()).isPositive();
+            assertThat(base64.eventsPerSecond()).isPositive();
+        }
+    }
+
+    private void createActiveCarts(List<UUID> serviceIds) {
+        Random random = new Random(42);
+        for (int i = 0; i < CARTS; i++) {
+            Cart cart = new Cart();
+            cart.setUserId("bench-user-" + i);
+            cart.setStatus(CartStatus.ACTIVE);
+            cart.setCreatedAt(LocalDateTime.now());
+            cart.setUpdatedAt(LocalDateTime.now());
+            cart = cartRepository.save(cart);
+
+            List<CartItem> items = new ArrayList<>(ITEMS_PER_CART);
+            for (int j = 0; j < ITEMS_PER_CART; j++) {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setServiceId(serviceIds.get(random.nextInt(serviceIds.size())));
+                item.setServiceName("Servicio de prueba");
+                item.setServicePrice(BigDecimal.valueOf(1000));
+                item.setServiceCategory("General");
+                item.setQuantity(1);
+                item.setAddedAt(LocalDateTime.now());
+                items.add(item);
+            }
+            cartItemRepository.saveAll(items);
+        }
+    }
+
+    private Result run(KafkaProducer<String, byte[]> producer, String name, List<UUID> serviceIds, int events,
+            boolean base64, int round) throws Exception {
+        completions.clear();
+
+        // Los payloads se arman antes de medir para no contar su serialización como costo de ingesta
+        byte[][] payloads = new byte[events][];
+        String[] keys = new String[events];
+        for (int seq = 0; seq < events; seq++) {
+            UUID serviceId = serviceIds.get(seq % serviceIds.size());
+            byte[] json = objectMapper.writeValueAsBytes(event(name, seq, round, serviceId));
+            payloads[seq] = base64 ? Base64.getEncoder().encode(json) : json;
+            keys[seq] = serviceId.toString();
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] sentAt = new long[events];
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int seq = 0; seq < events; seq++) {
+            sentAt[seq] = System.nanoTime();
+            producer.send(new ProducerRecord<>("service-response-topic", keys[seq], payloads[seq]));
+        }
+        producer.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(TIMEOUT_MINUTES);
+        while (completions.size() < events && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long end = completions.values().stream().mapToLong(Long::longValue).max().orElse(System.nanoTime());
+        long allocatedAfter = threads.getTotalThreadAllocatedBytes();
+        assertThat(completions).as("eventos procesados en %s", name).hasSize(events);
+
+        double[] lagMillis = new double[events];
+        for (int seq = 0; seq < events; seq++) {
+            lagMillis[seq] = (completions.get(requestId(name, seq)) - sentAt[seq]) / 1_000_000.0;
+        }
+        Arrays.sort(lagMillis);
+
+        return new Result(name,
+                events / ((end - start) / 1_000_000_000.0),
+                percentile(lagMillis, 0.50),
+                percentile(lagMillis, 0.95),
+                percentile(lagMillis, 0.99),
+                lagMillis[events - 1],
+                (allocatedAfter - allocatedBefore) / events);
+    }
+
+    private static ServiceResponseDTO event(String name, int seq, int round, UUID serviceId) {
+        return ServiceResponseDTO.builder()
+                .requestId(requestId(name, seq))
+                .serviceId(serviceId.toString())
+                .title("Clases particulares de matemáticas nivel " + (seq % 12))
+                .description("Acompañamiento personalizado para estudiantes de colegio y universidad: álgebra, "
+                        + "cálculo diferencial e integral, estadística y preparación de exámenes. Sesiones "
+                        + "presenciales o virtuales con material de apoyo incluido y seguimiento semanal.")
+                // Precio distinto en cada evento: todos cambian campos del carrito
+                .price(BigDecimal.valueOf(10_000L + round * 1_000_000L + seq))
+                .averageRating(3.0 + (seq % 20) / 10.0)
+                .eventType("UPDATED")
+                .timestamp(Instant.ofEpochMilli(1_750_000_000_000L + round * 100_000_000L + seq).toString())
+                .userId("marketplace")
+                .categoryId(UUID.nameUUIDFromBytes(("category-" + seq % 15).getBytes(StandardCharsets.UTF_8)))
+                .categoryName("Categoría " + (seq % 15))
+                .countryName(seq % 3 == 0 ? "Colombia" : seq % 3 == 1 ? "Perú" : "México")
+                .countryCode(seq % 3 == 0 ? "CO" : seq % 3 == 1 ? "PE" : "MX")
+                .primaryImageUrl("https://cdn.example.com/services/" + serviceId + ".jpg")
+                .isActive(true)
+                .build();
+    }
+
+    private static String requestId(String name, int seq) {
+        return "bench-" + name + "-" + seq;
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private record Result(String name, double eventsPerSecond, double p50Millis, double p95Millis,
+            double p99Millis, double maxMillis, long allocatedBytesPerEvent) {
+    }
+}